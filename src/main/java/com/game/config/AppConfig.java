@@ -1,12 +1,17 @@
 package com.game.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.core.env.Environment;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
@@ -23,10 +28,21 @@ import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.
 
 @Configuration
 @EnableTransactionManagement
-@ComponentScan("com.game")
+// the controllers and WebConfig belong to the servlet context; scanned here too, every
+// singleton below would exist twice
+@ComponentScan(basePackages = "com.game", excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = WebConfig.class),
+        @ComponentScan.Filter(type = FilterType.REGEX, pattern = "com\\.game\\.controller\\..*")})
 @EnableJpaRepositories(basePackages = "com.game.repository")
+@PropertySource("classpath:application.properties")
 public class AppConfig {
 
+    private final Environment env;
+
+    public AppConfig(@Autowired Environment env) {
+        this.env = env;
+    }
+
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
@@ -43,12 +59,26 @@ public class AppConfig {
     @Profile("prod")
     @Bean
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/rpg?serverTimezone=UTC&characterEncoding=UTF-8");
-        dataSource.setUsername("root");
-        dataSource.setPassword("root");
-        return dataSource;
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("rpg");
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        config.setJdbcUrl(env.getProperty("db.url"));
+        config.setUsername(env.getProperty("db.username"));
+        config.setPassword(env.getProperty("db.password"));
+        config.setMaximumPoolSize(env.getProperty("db.pool.maximumPoolSize", Integer.class, 20));
+        config.setMinimumIdle(env.getProperty("db.pool.minimumIdle", Integer.class, 5));
+        config.setConnectionTimeout(env.getProperty("db.pool.connectionTimeoutMs", Long.class, 3000L));
+        config.setLeakDetectionThreshold(env.getProperty("db.pool.leakDetectionThresholdMs", Long.class, 10000L));
+        config.setRegisterMbeans(true);
+
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", env.getProperty("db.pool.prepStmtCacheSize", "250"));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", env.getProperty("db.pool.prepStmtCacheSqlLimit", "2048"));
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        // lets a fetch size stream big results instead of reading them whole
+        config.addDataSourceProperty("useCursorFetch", "true");
+        return new HikariDataSource(config);
     }
 
     @Profile("dev")
@@ -79,7 +109,10 @@ public class AppConfig {
 
     private Properties additionalProperties() {
         Properties properties = new Properties();
-        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        // the dialect is resolved from the connection: MySQL in prod, H2 in dev
+        properties.setProperty("hibernate.hbm2ddl.auto", "none");
+        // in lists of candidate ids are padded to a power of two, which bounds the SQL texts
+        properties.setProperty("hibernate.query.in_clause_parameter_padding", "true");
 
         return properties;
     }
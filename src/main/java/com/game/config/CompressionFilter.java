@@ -0,0 +1,272 @@
+package com.game.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * gzip or deflate compression of responses, for clients that send Accept-Encoding.
+ * The first minSize bytes are buffered: a response that ends before that goes out as is with
+ * its length, a longer one is compressed from there on. A flush below minSize is held back
+ * until the size is known. Non-blocking output (setWriteListener) goes out uncompressed through
+ * the wrapped stream, and the response of an async request is finished when the request
+ * completes.
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int minSize;
+
+    public CompressionFilter(@Autowired Environment env) {
+        this.minSize = env.getProperty("http.compression.minSize", Integer.class, 2048);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String encoding = encoding(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        if (isNull(encoding) || "HEAD".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        CompressingResponse compressing = new CompressingResponse(response, encoding);
+        boolean async = false;
+        try {
+            chain.doFilter(request, compressing);
+            async = request.isAsyncStarted();
+        } finally {
+            if (async) {
+                request.getAsyncContext().addListener(new FinishingListener(compressing));
+            } else {
+                compressing.finish();
+            }
+        }
+    }
+
+    /**
+     * @return gzip or deflate, whichever the Accept-Encoding header allows, gzip preferred
+     */
+    static String encoding(String acceptEncoding) {
+        if (isNull(acceptEncoding)) return null;
+        boolean deflate = false;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim();
+            if (tokens.length > 1 && tokens[1].trim().matches("q=0(\\.0*)?")) continue;
+            if (coding.equals("gzip")) return "gzip";
+            if (coding.equals("deflate")) deflate = true;
+        }
+        return deflate ? "deflate" : null;
+    }
+
+    private static class FinishingListener implements AsyncListener {
+        private final CompressingResponse response;
+
+        FinishingListener(CompressingResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            response.finish();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private class CompressingResponse extends HttpServletResponseWrapper {
+        private final String encoding;
+        private final ThresholdOutputStream stream = new ThresholdOutputStream();
+        private PrintWriter writer;
+
+        CompressingResponse(HttpServletResponse response, String encoding) {
+            super(response);
+            this.encoding = encoding;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (isNull(writer)) writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+            return writer;
+        }
+
+        // the length is known only once the response is finished
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) super.addHeader(name, value);
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) super.setIntHeader(name, value);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (nonNull(writer)) writer.flush();
+            stream.flush();
+        }
+
+        @Override
+        public void resetBuffer() {
+            stream.resetBuffer();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            stream.resetBuffer();
+            super.reset();
+        }
+
+        void finish() throws IOException {
+            if (nonNull(writer)) writer.flush();
+            stream.finish();
+        }
+
+        /**
+         * Buffers up to minSize bytes, then decides between plain and compressed output.
+         */
+        private class ThresholdOutputStream extends ServletOutputStream {
+            private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            private OutputStream target;
+            // set once a write listener is registered: writes go straight to the wrapped stream
+            private ServletOutputStream nonBlocking;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (nonNull(target)) {
+                    target.write(b, off, len);
+                    return;
+                }
+                buffer.write(b, off, len);
+                if (buffer.size() >= minSize) start();
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (nonNull(target)) target.flush();
+            }
+
+            void resetBuffer() {
+                if (isNull(target)) buffer.reset();
+            }
+
+            void finish() throws IOException {
+                // the application ends non-blocking output itself
+                if (nonNull(nonBlocking)) return;
+                if (isNull(target)) {
+                    HttpServletResponse response = (HttpServletResponse) getResponse();
+                    if (!response.isCommitted()) response.setContentLength(buffer.size());
+                    buffer.writeTo(response.getOutputStream());
+                    response.getOutputStream().flush();
+                    return;
+                }
+                // also ends the native deflater
+                target.close();
+            }
+
+            private void start() throws IOException {
+                HttpServletResponse response = (HttpServletResponse) getResponse();
+                int status = response.getStatus();
+                if (response.containsHeader(HttpHeaders.CONTENT_ENCODING)
+                        || status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_NOT_MODIFIED) {
+                    target = response.getOutputStream();
+                } else {
+                    response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+                    target = encoding.equals("gzip")
+                            ? new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE, true)
+                            : new DeflaterOutputStream(response.getOutputStream(), true);
+                }
+                buffer.writeTo(target);
+                buffer.reset();
+            }
+
+            /**
+             * Blocking output is always ready; it is buffered or compressed on the caller's thread.
+             */
+            @Override
+            public boolean isReady() {
+                return isNull(nonBlocking) || nonBlocking.isReady();
+            }
+
+            /**
+             * A compressor may write to the wrapped stream when it isn't ready, so from here on
+             * the response isn't compressed and the listener is the wrapped stream's.
+             */
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                if (nonNull(target) || buffer.size() > 0) {
+                    throw new IllegalStateException("write listener set after output started");
+                }
+                try {
+                    nonBlocking = getResponse().getOutputStream();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                target = nonBlocking;
+                nonBlocking.setWriteListener(writeListener);
+            }
+        }
+    }
+}
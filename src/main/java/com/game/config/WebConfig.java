@@ -2,11 +2,18 @@ package com.game.config;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.game.controller.PlayerInfo;
+import com.game.controller.PlayerInfoSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.servlet.ViewResolver;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
@@ -19,7 +26,7 @@ import java.util.List;
 
 @Configuration
 @EnableWebMvc
-@ComponentScan("com.game")
+@ComponentScan("com.game.controller")
 public class WebConfig implements WebMvcConfigurer {
 
 
@@ -42,11 +49,29 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
     }
 
+    @Bean
+    public ObjectMapper objectMapper() {
+        return configure(Jackson2ObjectMapperBuilder.json().build());
+    }
+
+    /**
+     * Gives a mapper of any format the settings of the JSON one.
+     */
+    public static ObjectMapper configure(ObjectMapper objectMapper) {
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        objectMapper.registerModule(new SimpleModule().addSerializer(PlayerInfo.class, new PlayerInfoSerializer()));
+        return objectMapper;
+    }
+
+    /**
+     * JSON comes first and stays the default; Smile and CBOR are binary encodings of the same
+     * documents for clients that ask for them in Accept or Content-Type.
+     */
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
-        MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
-        converter.getObjectMapper().setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
-        converter.getObjectMapper().setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
-        converters.add(converter);
+        converters.add(new MappingJackson2HttpMessageConverter(objectMapper()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(configure(Jackson2ObjectMapperBuilder.smile().build())));
+        converters.add(new MappingJackson2CborHttpMessageConverter(configure(Jackson2ObjectMapperBuilder.cbor().build())));
     }
 }
\ No newline at end of file
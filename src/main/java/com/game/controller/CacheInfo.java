@@ -0,0 +1,67 @@
+package com.game.controller;
+
+public class CacheInfo {
+    public Long size;
+    public Long hitCount;
+    public Long missCount;
+    public Double hitRate;
+    public Long evictionCount;
+    public Long loadCount;
+    public Double averageLoadPenaltyMs;
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Long getHitCount() {
+        return hitCount;
+    }
+
+    public void setHitCount(Long hitCount) {
+        this.hitCount = hitCount;
+    }
+
+    public Long getMissCount() {
+        return missCount;
+    }
+
+    public void setMissCount(Long missCount) {
+        this.missCount = missCount;
+    }
+
+    public Double getHitRate() {
+        return hitRate;
+    }
+
+    public void setHitRate(Double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    public Long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public void setEvictionCount(Long evictionCount) {
+        this.evictionCount = evictionCount;
+    }
+
+    public Long getLoadCount() {
+        return loadCount;
+    }
+
+    public void setLoadCount(Long loadCount) {
+        this.loadCount = loadCount;
+    }
+
+    public Double getAverageLoadPenaltyMs() {
+        return averageLoadPenaltyMs;
+    }
+
+    public void setAverageLoadPenaltyMs(Double averageLoadPenaltyMs) {
+        this.averageLoadPenaltyMs = averageLoadPenaltyMs;
+    }
+}
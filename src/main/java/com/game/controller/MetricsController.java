@@ -0,0 +1,96 @@
+package com.game.controller;
+
+import com.game.repository.PlayerCache;
+import com.game.repository.PlayerQueryShapes;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+
+@RestController
+@RequestMapping("/rest/metrics")
+public class MetricsController {
+
+    private final DataSource dataSource;
+    private final PlayerCache playerCache;
+    private final PlayerQueryShapes queryShapes;
+
+    public MetricsController(@Autowired DataSource dataSource,
+                             @Autowired PlayerCache playerCache,
+                             @Autowired PlayerQueryShapes queryShapes) {
+        this.dataSource = dataSource;
+        this.playerCache = playerCache;
+        this.queryShapes = queryShapes;
+    }
+
+    /**
+     * Saturation of the connection pool: saturation is the share of busy connections,
+     * threadsAwaitingConnection > 0 means requests are already queueing for a connection.
+     */
+    @GetMapping("/pool")
+    public ResponseEntity<PoolInfo> getPool() {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        if (isNull(pool)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+
+        PoolInfo result = new PoolInfo();
+        result.maximumPoolSize = hikari.getMaximumPoolSize();
+        result.activeConnections = pool.getActiveConnections();
+        result.idleConnections = pool.getIdleConnections();
+        result.totalConnections = pool.getTotalConnections();
+        result.threadsAwaitingConnection = pool.getThreadsAwaitingConnection();
+        result.saturation = (double) result.activeConnections / result.maximumPoolSize;
+        return ResponseEntity.status(HttpStatus.OK).body(result);
+    }
+
+    /**
+     * Statistics of the player cache since startup.
+     */
+    @GetMapping("/cache")
+    public CacheInfo getCache() {
+        CacheStats stats = playerCache.stats();
+        CacheInfo result = new CacheInfo();
+        result.size = playerCache.size();
+        result.hitCount = stats.hitCount();
+        result.missCount = stats.missCount();
+        result.hitRate = stats.hitRate();
+        result.evictionCount = stats.evictionCount();
+        result.loadCount = stats.loadCount();
+        result.averageLoadPenaltyMs = stats.averageLoadPenalty() / 1_000_000;
+        return result;
+    }
+
+    /**
+     * Executions and database time of every list query shape since startup.
+     */
+    @GetMapping("/queries")
+    public List<QueryShapeInfo> getQueries() {
+        List<QueryShapeInfo> result = new ArrayList<>();
+        for (PlayerQueryShapes.Shape shape : queryShapes.all()) {
+            QueryShapeInfo info = new QueryShapeInfo();
+            info.shape = shape.getName();
+            info.executions = shape.getExecutions();
+            info.totalMs = shape.getTotalNanos() / 1_000_000.0;
+            info.averageMs = info.executions == 0 ? 0 : info.totalMs / info.executions;
+            info.maxMs = shape.getMaxNanos() / 1_000_000.0;
+            result.add(info);
+        }
+        return result;
+    }
+}
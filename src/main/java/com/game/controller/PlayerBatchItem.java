@@ -0,0 +1,40 @@
+package com.game.controller;
+
+public class PlayerBatchItem {
+    public Integer index;
+    public Boolean success;
+    public String error;
+    public PlayerInfo player;
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public void setIndex(Integer index) {
+        this.index = index;
+    }
+
+    public Boolean getSuccess() {
+        return success;
+    }
+
+    public void setSuccess(Boolean success) {
+        this.success = success;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public PlayerInfo getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(PlayerInfo player) {
+        this.player = player;
+    }
+}
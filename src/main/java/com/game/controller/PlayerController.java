@@ -1,22 +1,34 @@
 package com.game.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.game.entity.Player;
 import com.game.entity.Profession;
 import com.game.entity.Race;
+import com.game.repository.PlayerCursor;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerNameTrie;
+import com.game.repository.PlayerPage;
+import com.game.repository.QuadraticLevelCurve;
+import com.game.service.PlayerIngest;
 import com.game.service.PlayerService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.ZoneId;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
@@ -24,149 +36,450 @@ import static java.util.Objects.nonNull;
 @RestController
 @RequestMapping("/rest/players")
 public class PlayerController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String NDJSON = "application/x-ndjson";
+    private static final int EXPORT_FLUSH_EVERY = 1000;
+    private static final int MAX_LOOKUP_IDS = 1000;
 
     private final PlayerService playerService;
+    private final ObjectMapper objectMapper;
+    private final PlayerResponseWriter responseWriter;
+    private final PlayerIngest playerIngest;
 
-    public PlayerController(@Autowired PlayerService playerService) {
+    public PlayerController(@Autowired PlayerService playerService,
+                            @Autowired ObjectMapper objectMapper,
+                            @Autowired PlayerResponseWriter responseWriter,
+                            @Autowired PlayerIngest playerIngest) {
         this.playerService = playerService;
+        this.objectMapper = objectMapper;
+        this.responseWriter = responseWriter;
+        this.playerIngest = playerIngest;
     }
 
+    /**
+     * fields= narrows the players to the listed PlayerInfo fields, both in the query and in
+     * the response. The page is written straight into the response.
+     */
     @GetMapping()
-    public List<PlayerInfo> getAll(@RequestParam(required = false) String name,
-                                   @RequestParam(required = false) String title,
-                                   @RequestParam(required = false) String race,
-                                   @RequestParam(required = false) String profession,
-                                   @RequestParam(required = false) Long after,
-                                   @RequestParam(required = false) Long before,
-                                   @RequestParam(required = false) Integer minExperience,
-                                   @RequestParam(required = false) Integer maxExperience,
-                                   @RequestParam(required = false) Integer minLevel,
-                                   @RequestParam(required = false) Integer maxLevel,
-                                   @RequestParam(required = false) String banned,
-                                   @RequestParam(required = false) Integer pageNumber,
-                                   @RequestParam(required = false) Integer pageSize,
-                                   @RequestParam(required = false) String order) {
-        name = isNull(name) ? "": name;
-        title = isNull(title) ? "": title;
-        after = isNull(after) ? 0L: after;
-        before = isNull(before) ? new Date().getTime(): before;
-        minExperience = isNull(minExperience) ? 0: minExperience;
-        maxExperience = isNull(maxExperience) ? Integer.MAX_VALUE: maxExperience;
-        minLevel = isNull(minLevel) ? 0: minLevel;
-        maxLevel = isNull(maxLevel) ? Integer.MAX_VALUE: maxLevel;
-        race = isNull(race) ? "ANY" : race;
-        profession = isNull(profession) ? "ANY" : profession;
-        banned = isNull(banned) ? "ANY" : banned;
+    public void getAll(@RequestParam(required = false) String name,
+                       @RequestParam(required = false) String title,
+                       @RequestParam(required = false) String race,
+                       @RequestParam(required = false) String profession,
+                       @RequestParam(required = false) Long after,
+                       @RequestParam(required = false) Long before,
+                       @RequestParam(required = false) Integer minExperience,
+                       @RequestParam(required = false) Integer maxExperience,
+                       @RequestParam(required = false) Integer minLevel,
+                       @RequestParam(required = false) Integer maxLevel,
+                       @RequestParam(required = false) String banned,
+                       @RequestParam(required = false) Integer pageNumber,
+                       @RequestParam(required = false) Integer pageSize,
+                       @RequestParam(required = false) PlayerOrder order,
+                       @RequestParam(required = false) String cursor,
+                       @RequestParam(required = false) String fields,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
         pageNumber = isNull(pageNumber) ? 0 : pageNumber;
         pageSize = isNull(pageSize) ? 3 : pageSize;
-        order = isNull(order) ? "ID": order;
+        order = isNull(order) ? PlayerOrder.ID : order;
+        PlayerFields playerFields = PlayerFields.parse(fields);
+        if (isNull(playerFields) || pageSize <= 0) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
 
-        List<Player> players = playerService.getAll(name, title, after, before, minExperience, maxExperience, minLevel, maxLevel,
-                race, profession, banned, pageNumber, pageSize, order);
-        return players.stream().map(PlayerController::toPlayerInfo).collect(Collectors.toList());
+        PlayerFilter filter = new PlayerFilter(name, title, after, before, minExperience, maxExperience,
+                minLevel, maxLevel, race, profession, banned);
+        if (nonNull(cursor)) {
+            getAllAfter(filter, cursor, pageSize, order, playerFields, request, response);
+            return;
+        }
+        List<PlayerInfo> players = playerService.getAll(filter, pageNumber, pageSize, order, playerFields);
+        responseWriter.writePlayers(request, response, players, playerFields);
     }
 
+    /**
+     * Keyset mode of getAll: an empty cursor starts from the beginning, the next cursor is
+     * returned in the X-Next-Cursor header while there may be more players.
+     */
+    private void getAllAfter(PlayerFilter filter, String cursor, int pageSize, PlayerOrder order, PlayerFields fields,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        PlayerCursor after = null;
+        if (!cursor.isEmpty()) {
+            after = PlayerCursor.decode(cursor);
+            if (isNull(after) || after.getOrder() != order) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                return;
+            }
+        }
+
+        List<PlayerInfo> players = playerService.getAfter(filter, order, after, pageSize, fields);
+        if (players.size() == pageSize) {
+            response.setHeader(NEXT_CURSOR_HEADER, PlayerCursor.of(order, players.get(players.size() - 1)).encode());
+        }
+        responseWriter.writePlayers(request, response, players, fields);
+    }
+
+    /**
+     * Many players by id with one query, in the order of the ids. Unknown ids are returned
+     * with found = false.
+     */
+    @GetMapping(params = "ids")
+    public void getPlayers(@RequestParam List<Long> ids,
+                           HttpServletRequest request,
+                           HttpServletResponse response) throws IOException {
+        lookup(ids, request, response);
+    }
+
+    /**
+     * getPlayers for id lists too long for a query string.
+     */
+    @PostMapping("/lookup")
+    public void lookupPlayers(@RequestBody List<Long> ids,
+                              HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        lookup(ids, request, response);
+    }
+
+    /**
+     * Writes an item {id, found, player} per id straight into the response.
+     */
+    private void lookup(List<Long> ids, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean valid = ids.size() <= MAX_LOOKUP_IDS && ids.stream().allMatch(id -> nonNull(id) && id > 0);
+        if (!valid) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        responseWriter.writeLookup(request, response, ids, playerService.getByIds(ids));
+    }
+
+    /**
+     * fields= narrows the response to the listed PlayerInfo fields. The player itself comes
+     * whole from the player cache, which a narrowed query would only fill with partial players.
+     */
     @GetMapping("/{ID}")
-    public ResponseEntity<PlayerInfo> getPlayer(@PathVariable("ID") long id) {
-        if (id <= 0) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+    public void getPlayer(@PathVariable("ID") long id,
+                          @RequestParam(required = false) String fields,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        PlayerFields playerFields = PlayerFields.parse(fields);
+        if (id <= 0 || isNull(playerFields)) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
         }
-        Player player = playerService.getById(id);
+        PlayerInfo player = playerService.getById(id);
         if (isNull(player)) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
         } else {
-            return ResponseEntity.status(HttpStatus.OK).body(toPlayerInfo(player));
+            responseWriter.writePlayer(request, response, player, playerFields);
         }
     }
 
     @GetMapping("/count")
-    public Integer getAllCount(@RequestParam(required = false) String name,
-                               @RequestParam(required = false) String title,
-                               @RequestParam(required = false) String race,
-                               @RequestParam(required = false) String profession,
-                               @RequestParam(required = false) Long after,
-                               @RequestParam(required = false) Long before,
-                               @RequestParam(required = false) Integer minExperience,
-                               @RequestParam(required = false) Integer maxExperience,
-                               @RequestParam(required = false) Integer minLevel,
-                               @RequestParam(required = false) Integer maxLevel,
-                               @RequestParam(required = false) String banned) {
-        name = isNull(name) ? "": name;
-        title = isNull(title) ? "": title;
-        after = isNull(after) ? 0L: after;
-        before = isNull(before) ? new Date().getTime(): before;
-        minExperience = isNull(minExperience) ? 0: minExperience;
-        maxExperience = isNull(maxExperience) ? Integer.MAX_VALUE: maxExperience;
-        minLevel = isNull(minLevel) ? 0: minLevel;
-        maxLevel = isNull(maxLevel) ? Integer.MAX_VALUE: maxLevel;
-        race = isNull(race) ? "ANY" : race;
-        profession = isNull(profession) ? "ANY" : profession;
-        banned = isNull(banned) ? "ANY" : banned;
-        return playerService.getAllCount(name, title, after, before, minExperience, maxExperience, minLevel, maxLevel,
-                race, profession, banned);
+    public ResponseEntity<Integer> getAllCount(@RequestParam(required = false) String name,
+                                               @RequestParam(required = false) String title,
+                                               @RequestParam(required = false) String race,
+                                               @RequestParam(required = false) String profession,
+                                               @RequestParam(required = false) Long after,
+                                               @RequestParam(required = false) Long before,
+                                               @RequestParam(required = false) Integer minExperience,
+                                               @RequestParam(required = false) Integer maxExperience,
+                                               @RequestParam(required = false) Integer minLevel,
+                                               @RequestParam(required = false) Integer maxLevel,
+                                               @RequestParam(required = false) String banned) {
+        PlayerFilter filter = new PlayerFilter(name, title, after, before, minExperience, maxExperience,
+                minLevel, maxLevel, race, profession, banned);
+        Integer count = playerService.getAllCount(filter);
+        if (isNull(count)) return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        return ResponseEntity.status(HttpStatus.OK).body(count);
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<PlayerPageInfo> getPage(@RequestParam(required = false) String name,
+                                  @RequestParam(required = false) String title,
+                                  @RequestParam(required = false) String race,
+                                  @RequestParam(required = false) String profession,
+                                  @RequestParam(required = false) Long after,
+                                  @RequestParam(required = false) Long before,
+                                  @RequestParam(required = false) Integer minExperience,
+                                  @RequestParam(required = false) Integer maxExperience,
+                                  @RequestParam(required = false) Integer minLevel,
+                                  @RequestParam(required = false) Integer maxLevel,
+                                  @RequestParam(required = false) String banned,
+                                  @RequestParam(required = false) Integer pageNumber,
+                                  @RequestParam(required = false) Integer pageSize,
+                                  @RequestParam(required = false) PlayerOrder order) {
+        pageNumber = isNull(pageNumber) ? 0 : pageNumber;
+        pageSize = isNull(pageSize) ? 3 : pageSize;
+        order = isNull(order) ? PlayerOrder.ID : order;
+        if (pageSize <= 0) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+
+        PlayerFilter filter = new PlayerFilter(name, title, after, before, minExperience, maxExperience,
+                minLevel, maxLevel, race, profession, banned);
+        PlayerPage page = playerService.getPage(filter, pageNumber, pageSize, order);
+
+        PlayerPageInfo result = new PlayerPageInfo();
+        result.players = page.getPlayers();
+        result.count = page.getCount();
+        return ResponseEntity.status(HttpStatus.OK).body(result);
+    }
+
+    /**
+     * Writes every matching player as one JSON object per line, in id order. Players are
+     * streamed from the database cursor straight into the response, nothing is collected.
+     */
+    @GetMapping("/export")
+    public void export(@RequestParam(required = false) String name,
+                       @RequestParam(required = false) String title,
+                       @RequestParam(required = false) String race,
+                       @RequestParam(required = false) String profession,
+                       @RequestParam(required = false) Long after,
+                       @RequestParam(required = false) Long before,
+                       @RequestParam(required = false) Integer minExperience,
+                       @RequestParam(required = false) Integer maxExperience,
+                       @RequestParam(required = false) Integer minLevel,
+                       @RequestParam(required = false) Integer maxLevel,
+                       @RequestParam(required = false) String banned,
+                       HttpServletResponse response) throws IOException {
+        PlayerFilter filter = new PlayerFilter(name, title, after, before, minExperience, maxExperience,
+                minLevel, maxLevel, race, profession, banned);
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            int[] written = {0};
+            try {
+                playerService.export(filter, player -> {
+                    try {
+                        PlayerInfoSerializer.write(player, generator, PlayerFields.ALL);
+                        generator.writeRaw('\n');
+                        if (++written[0] % EXPORT_FLUSH_EVERY == 0) generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<PlayerSuggestion>> suggest(@RequestParam(required = false) String prefix,
+                                                          @RequestParam(required = false) Integer limit) {
+        limit = isNull(limit) ? 10 : limit;
+        if (StringUtils.isEmpty(prefix)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        if (limit <= 0 || limit > PlayerNameTrie.MAX_LIMIT) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        return ResponseEntity.status(HttpStatus.OK).body(playerService.suggest(prefix, limit));
+    }
+
+    @GetMapping("/top")
+    public ResponseEntity<List<PlayerInfo>> getTop(@RequestParam(required = false) Integer n) {
+        n = isNull(n) ? 10 : n;
+        if (n <= 0 || n > 1000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        return ResponseEntity.status(HttpStatus.OK).body(playerService.getTop(n));
+    }
+
+    @GetMapping("/{ID}/rank")
+    public ResponseEntity<PlayerRank> getRank(@PathVariable("ID") long id) {
+        if (id <= 0) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        Integer rank = playerService.getRank(id);
+        if (isNull(rank)) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+
+        PlayerRank result = new PlayerRank();
+        result.id = id;
+        result.rank = rank;
+        return ResponseEntity.status(HttpStatus.OK).body(result);
     }
 
     @PostMapping
     public ResponseEntity<PlayerInfo> createPlayer(@RequestBody PlayerInfo info) {
-        if (StringUtils.isEmpty(info.name) || info.name.length() > 12) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        if (info.title.length() > 30) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        if (isNull(info.race)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        if (isNull(info.profession)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        Long currentDate = new Date().getTime();
-        if (isNull(info.birthday) || info.birthday < 0 || info.birthday>=currentDate) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-
-        LocalDate localDate = new Date(info.birthday).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        int year = localDate.getYear();
-        if (year < 2000 || year > 3000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        if (nonNull(checkNewPlayer(info))) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
 
         boolean banned = !isNull(info.banned) && info.banned;
+        Player player = playerService.createPlayer(info.name, info.title, info.race, info.profession, info.birthday, banned, info.experience);
+        return ResponseEntity.status(HttpStatus.OK).body(PlayerInfo.of(player));
+    }
 
-        if (isNull(info.experience) || info.experience < 0 || info.experience>10000000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+    /**
+     * Creates many players at once. Every item is validated like in createPlayer and gets its
+     * own result; the valid ones are inserted in JDBC batches.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<PlayerBatchItem>> createPlayers(@RequestBody List<PlayerInfo> infos) {
+        if (infos.size() > playerService.getMaxBatchSize()) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
 
-        Player player = playerService.createPlayer(info.name, info.title, info.race, info.profession, info.birthday, banned, info.experience);
-        return ResponseEntity.status(HttpStatus.OK).body(toPlayerInfo(player));
+        List<PlayerBatchItem> result = new ArrayList<>();
+        List<Player> players = new ArrayList<>();
+        List<PlayerBatchItem> inserted = new ArrayList<>();
+        for (int i = 0; i < infos.size(); i++) {
+            PlayerInfo info = infos.get(i);
+            PlayerBatchItem item = new PlayerBatchItem();
+            item.index = i;
+            item.error = isNull(info) ? "empty player" : checkNewPlayer(info);
+            item.success = isNull(item.error);
+            if (item.success) {
+                boolean banned = !isNull(info.banned) && info.banned;
+                players.add(new Player(info.name, info.title, info.race, info.profession, new Date(info.birthday), banned, info.experience));
+                inserted.add(item);
+            }
+            result.add(item);
+        }
+
+        List<String> errors = playerService.createPlayers(players);
+        for (int i = 0; i < players.size(); i++) {
+            PlayerBatchItem item = inserted.get(i);
+            item.error = errors.get(i);
+            item.success = isNull(item.error);
+            if (item.success) item.player = PlayerInfo.of(players.get(i));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(result);
     }
 
+    /**
+     * Adds amount experience to every player matching the filter in one update statement.
+     * The experience is capped at 10000000 like in createPlayer.
+     *
+     * @return number of updated players
+     */
+    @PostMapping("/bulk/experience")
+    public ResponseEntity<Integer> addExperience(@RequestParam(required = false) String name,
+                                                 @RequestParam(required = false) String title,
+                                                 @RequestParam(required = false) String race,
+                                                 @RequestParam(required = false) String profession,
+                                                 @RequestParam(required = false) Long after,
+                                                 @RequestParam(required = false) Long before,
+                                                 @RequestParam(required = false) Integer minExperience,
+                                                 @RequestParam(required = false) Integer maxExperience,
+                                                 @RequestParam(required = false) Integer minLevel,
+                                                 @RequestParam(required = false) Integer maxLevel,
+                                                 @RequestParam(required = false) String banned,
+                                                 @RequestParam(required = false) Integer amount) {
+        if (isNull(amount) || amount <= 0 || amount > 10000000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+
+        PlayerFilter filter = new PlayerFilter(name, title, after, before, minExperience, maxExperience,
+                minLevel, maxLevel, race, profession, banned);
+        return ResponseEntity.status(HttpStatus.OK).body(playerService.addExperience(filter, amount));
+    }
+
+    /**
+     * Sets the banned flag of every player matching the filter to value in one update statement.
+     *
+     * @return number of updated players
+     */
+    @PostMapping("/bulk/ban")
+    public ResponseEntity<Integer> setBanned(@RequestParam(required = false) String name,
+                                             @RequestParam(required = false) String title,
+                                             @RequestParam(required = false) String race,
+                                             @RequestParam(required = false) String profession,
+                                             @RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Long before,
+                                             @RequestParam(required = false) Integer minExperience,
+                                             @RequestParam(required = false) Integer maxExperience,
+                                             @RequestParam(required = false) Integer minLevel,
+                                             @RequestParam(required = false) Integer maxLevel,
+                                             @RequestParam(required = false) String banned,
+                                             @RequestParam(required = false) Boolean value) {
+        if (isNull(value)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+
+        PlayerFilter filter = new PlayerFilter(name, title, after, before, minExperience, maxExperience,
+                minLevel, maxLevel, race, profession, banned);
+        return ResponseEntity.status(HttpStatus.OK).body(playerService.setBanned(filter, value));
+    }
+
+    /**
+     * Adds amount experience to the player without a write of its own: gains are summed in
+     * memory and written in batches every few moments. Reads of the player by id include the
+     * gains not written yet; lists and counts see them once written.
+     */
+    @PostMapping("/{ID}/experience:add")
+    public ResponseEntity<PlayerInfo> addPlayerExperience(@PathVariable("ID") long id,
+                                                          @RequestParam(required = false) Integer amount) {
+        if (id <= 0) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        if (isNull(amount) || amount <= 0 || amount > 10000000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+
+        PlayerInfo player = playerService.addExperience(id, amount);
+        if (isNull(player)) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        return ResponseEntity.status(HttpStatus.OK).body(player);
+    }
+
+    /**
+     * Queues a batch of events from a game server, up to the size of a /batch request, and
+     * answers once the ingest workers have committed them. The batch is refused whole when an
+     * event is invalid (400), when more of its events fall into one queue than the queue holds
+     * (413), or when the queues have no room for it now or the service is shutting down (429).
+     * With 202 every event is committed, or dropped after its retries and listed in the dead
+     * letters of GET /events/metrics.
+     *
+     * @return number of accepted events
+     */
+    @PostMapping("/events")
+    public ResponseEntity<Integer> ingestEvents(@RequestBody List<PlayerEvent> events) {
+        if (events.size() > playerService.getMaxBatchSize()) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        for (PlayerEvent event : events) {
+            if (!checkEvent(event)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        PlayerIngest.Submission submission = playerIngest.submit(events);
+        if (submission == PlayerIngest.Submission.TOO_LARGE) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(null);
+        }
+        if (submission != PlayerIngest.Submission.SETTLED) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(null);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(events.size());
+    }
+
+    @GetMapping("/events/metrics")
+    public ResponseEntity<List<PlayerIngestMetrics>> getIngestMetrics() {
+        return ResponseEntity.status(HttpStatus.OK).body(playerIngest.getMetrics());
+    }
+
+    /**
+     * Switches to the level curve where level L takes step * L * (L + 1) experience (50 is the
+     * original one) and recomputes the level of every stored player.
+     *
+     * @return number of players whose level or untilNextLevel changed
+     */
+    @PostMapping("/levels/curve")
+    public ResponseEntity<Integer> changeLevelCurve(@RequestParam(required = false) Integer step) {
+        if (isNull(step) || step <= 0 || step > 10000000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+
+        return ResponseEntity.status(HttpStatus.OK).body(playerService.changeLevelCurve(new QuadraticLevelCurve(step)));
+    }
+
+    /**
+     * Only the fields present in the body are validated: the stored ones were valid when
+     * written. The player is then read and changed once, in the service's transaction.
+     */
     @PostMapping("/{ID}")
     public ResponseEntity<PlayerInfo> updatePlayer(@PathVariable("ID") long id,
                                                    @RequestBody PlayerInfo info) {
-        if (checkEmptyInfo(info)) return ResponseEntity.status(HttpStatus.OK).body(toPlayerInfo(playerService.getById(id)));
+        if (checkEmptyInfo(info)) return ResponseEntity.status(HttpStatus.OK).body(playerService.getById(id));
         if (id <= 0) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        Player playerStored = playerService.getById(id);
-        if(isNull(playerStored)) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
-        info = mergePlayerInfoWithPlayer(info,playerStored);
         if (nonNull(info.name) && (info.name.length() > 12 || info.name.isEmpty())) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         if (nonNull(info.title) && info.title.length() > 30) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        if (isNull(info.race)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        if (isNull(info.profession)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        Long currentDate = new Date().getTime();
-        if (isNull(info.birthday) || info.birthday < 0 || (info.birthday>=currentDate)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
-        LocalDate localDate = new Date(info.birthday).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
-        int year = localDate.getYear();
-        if (year < 2000 || year > 3000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        if (nonNull(info.birthday)) {
+            Long currentDate = new Date().getTime();
+            if (info.birthday < 0 || (info.birthday>=currentDate)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            LocalDate localDate = new Date(info.birthday).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            int year = localDate.getYear();
+            if (year < 2000 || year > 3000) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
 
         info.banned = !isNull(info.banned) && info.banned;
-        if (isNull(info.experience) || (info.experience<0 || info.experience > 10000000)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        if (nonNull(info.experience) && (info.experience<0 || info.experience > 10000000)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
 
 
         Player playerUpdated = playerService.updatePlayer(id, info);
         if (isNull(playerUpdated)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         } else {
-            return ResponseEntity.status(HttpStatus.OK).body(toPlayerInfo(playerUpdated));
+            return ResponseEntity.status(HttpStatus.OK).body(PlayerInfo.of(playerUpdated));
         }
     }
 
-    public PlayerInfo mergePlayerInfoWithPlayer(PlayerInfo info, Player player){
-        if(isNull(info.name))  info.name = player.getName();
-        if(isNull(info.title))  info.title = player.getTitle();
-        if(isNull(info.race))  info.race = player.getRace();
-        if(isNull(info.profession))  info.profession = player.getProfession();
-        if(isNull(info.birthday))  info.birthday = player.getBirthday().getTime();
-        if(isNull(info.experience))  info.experience = player.getExperience();
-        return info;
-    }
-
     @DeleteMapping("/{ID}")
     public ResponseEntity delete(@PathVariable("ID") long id) {
         if (id <= 0) {
@@ -175,29 +488,66 @@ public class PlayerController {
 /*        if (isNull(playerService.getById(id))){
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }*/
-        Player player = playerService.delete(id);
-        if (isNull(player)) {
+        if (!playerService.delete(id)) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         } else {
             return ResponseEntity.status(HttpStatus.OK).body(null);
         }
     }
 
-    private static PlayerInfo toPlayerInfo(Player player) {
-        if (isNull(player)) return null;
+    /**
+     * Deletes every player matching the filter, in chunks. At least one criterion is required,
+     * so a request without parameters can't wipe the table.
+     *
+     * @return number of deleted players
+     */
+    @DeleteMapping
+    public ResponseEntity<Integer> deleteAll(@RequestParam(required = false) String name,
+                                             @RequestParam(required = false) String title,
+                                             @RequestParam(required = false) String race,
+                                             @RequestParam(required = false) String profession,
+                                             @RequestParam(required = false) Long after,
+                                             @RequestParam(required = false) Long before,
+                                             @RequestParam(required = false) Integer minExperience,
+                                             @RequestParam(required = false) Integer maxExperience,
+                                             @RequestParam(required = false) Integer minLevel,
+                                             @RequestParam(required = false) Integer maxLevel,
+                                             @RequestParam(required = false) String banned) {
+        PlayerFilter filter = new PlayerFilter(name, title, after, before, minExperience, maxExperience,
+                minLevel, maxLevel, race, profession, banned);
+        if (filter.isEmpty()) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        return ResponseEntity.status(HttpStatus.OK).body(playerService.deleteAll(filter));
+    }
+
+    /**
+     * @return why the player can't be created, or null if it can
+     */
+    private static String checkNewPlayer(PlayerInfo info) {
+        if (StringUtils.isEmpty(info.name) || info.name.length() > 12) return "invalid name";
+        if (isNull(info.title) || info.title.length() > 30) return "invalid title";
+        if (isNull(info.race)) return "invalid race";
+        if (isNull(info.profession)) return "invalid profession";
+        Long currentDate = new Date().getTime();
+        if (isNull(info.birthday) || info.birthday < 0 || info.birthday>=currentDate) return "invalid birthday";
+
+        LocalDate localDate = new Date(info.birthday).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        int year = localDate.getYear();
+        if (year < 2000 || year > 3000) return "invalid birthday";
 
-        PlayerInfo result = new PlayerInfo();
-        result.id = player.getId();
-        result.name = player.getName();
-        result.title = player.getTitle();
-        result.race = player.getRace();
-        result.profession = player.getProfession();
-        result.birthday = player.getBirthday().getTime();
-        result.banned = player.getBanned();
-        result.experience = player.getExperience();
-        result.level = player.getLevel();
-        result.untilNextLevel = player.getUntilNextLevel();
-        return result;
+        if (isNull(info.experience) || info.experience < 0 || info.experience>10000000) return "invalid experience";
+        return null;
+    }
+
+    private static boolean checkEvent(PlayerEvent event) {
+        if (isNull(event) || isNull(event.id) || event.id <= 0 || isNull(event.type)) return false;
+        switch (event.type) {
+            case EXPERIENCE:
+                return nonNull(event.amount) && event.amount > 0 && event.amount <= 10000000;
+            case TITLE:
+                return !StringUtils.isEmpty(event.title) && event.title.length() <= 30;
+            default:
+                return true;
+        }
     }
 
     private Boolean checkEmptyInfo(PlayerInfo info){
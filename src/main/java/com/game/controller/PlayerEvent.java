@@ -0,0 +1,54 @@
+package com.game.controller;
+
+/**
+ * Change of one player reported by a game server: EXPERIENCE adds amount, TITLE sets title,
+ * BAN and UNBAN set the banned flag.
+ */
+public class PlayerEvent {
+    public Long id;
+    public PlayerEventType type;
+    public Integer amount;
+    public String title;
+
+    public PlayerEvent() {
+    }
+
+    public PlayerEvent(Long id, PlayerEventType type, Integer amount, String title) {
+        this.id = id;
+        this.type = type;
+        this.amount = amount;
+        this.title = title;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public PlayerEventType getType() {
+        return type;
+    }
+
+    public void setType(PlayerEventType type) {
+        this.type = type;
+    }
+
+    public Integer getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Integer amount) {
+        this.amount = amount;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+}
@@ -0,0 +1,8 @@
+package com.game.controller;
+
+public enum PlayerEventType {
+    EXPERIENCE,
+    TITLE,
+    BAN,
+    UNBAN
+}
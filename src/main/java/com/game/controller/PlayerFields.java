@@ -0,0 +1,139 @@
+package com.game.controller;
+
+import com.game.entity.Profession;
+import com.game.entity.Race;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The PlayerInfo fields a client asked for with fields=. There is one instance per subset,
+ * and it keeps its select clause, so it isn't rebuilt per request; PlayerInfoSerializer
+ * writes only the included fields.
+ * The field names double as the Player property names.
+ */
+public final class PlayerFields {
+    // the PlayerInfo fields in the order of their bits, each with the setter for its column
+    private static final Map<String, BiConsumer<PlayerInfo, Object>> SETTERS = new LinkedHashMap<>();
+
+    static {
+        SETTERS.put("id", (info, value) -> info.id = (Long) value);
+        SETTERS.put("name", (info, value) -> info.name = (String) value);
+        SETTERS.put("title", (info, value) -> info.title = (String) value);
+        SETTERS.put("race", (info, value) -> info.race = (Race) value);
+        SETTERS.put("profession", (info, value) -> info.profession = (Profession) value);
+        SETTERS.put("birthday", (info, value) -> info.birthday = isNull(value) ? null : ((Date) value).getTime());
+        SETTERS.put("banned", (info, value) -> info.banned = (Boolean) value);
+        SETTERS.put("experience", (info, value) -> info.experience = (Integer) value);
+        SETTERS.put("level", (info, value) -> info.level = (Integer) value);
+        SETTERS.put("untilNextLevel", (info, value) -> info.untilNextLevel = (Integer) value);
+    }
+
+    private static final List<String> NAMES = new ArrayList<>(SETTERS.keySet());
+    private static final ConcurrentMap<Integer, PlayerFields> INTERNED = new ConcurrentHashMap<>();
+
+    public static final PlayerFields ALL = of((1 << NAMES.size()) - 1);
+
+    private final int mask;
+    private final List<BiConsumer<PlayerInfo, Object>> setters;
+    private final Set<String> names;
+    private final String select;
+
+    private PlayerFields(int mask) {
+        this.mask = mask;
+        List<BiConsumer<PlayerInfo, Object>> selectedSetters = new ArrayList<>();
+        Set<String> selectedNames = new LinkedHashSet<>();
+        for (int i = 0; i < NAMES.size(); i++) {
+            if ((mask & (1 << i)) != 0) {
+                selectedNames.add(NAMES.get(i));
+                selectedSetters.add(SETTERS.get(NAMES.get(i)));
+            }
+        }
+        this.setters = Collections.unmodifiableList(selectedSetters);
+        this.names = Collections.unmodifiableSet(selectedNames);
+        this.select = "select " + names.stream().map(name -> "p." + name).collect(Collectors.joining(", ")) + " ";
+    }
+
+    private static PlayerFields of(int mask) {
+        return INTERNED.computeIfAbsent(mask, PlayerFields::new);
+    }
+
+    /**
+     * @return the fields of a comma separated list, all of them for null, or null when the
+     * list is empty or names something PlayerInfo doesn't have
+     */
+    public static PlayerFields parse(String value) {
+        if (isNull(value)) return ALL;
+        int mask = 0;
+        for (String name : value.split(",", -1)) {
+            int index = NAMES.indexOf(name.trim());
+            if (index < 0) return null;
+            mask |= 1 << index;
+        }
+        return of(mask);
+    }
+
+    /**
+     * @return the bit of the named PlayerInfo field for includes
+     */
+    public static int bit(String name) {
+        int index = NAMES.indexOf(name);
+        if (index < 0) throw new IllegalArgumentException("PlayerInfo has no field " + name);
+        return 1 << index;
+    }
+
+    public boolean includes(int bit) {
+        return (mask & bit) != 0;
+    }
+
+    public boolean isAll() {
+        return this == ALL;
+    }
+
+    /**
+     * @return these fields plus the ones a keyset cursor in the given order is built from
+     */
+    public PlayerFields withCursor(PlayerOrder order) {
+        return of(mask | bit("id") | bit(order.getFieldName()));
+    }
+
+    public Set<String> getNames() {
+        return names;
+    }
+
+    /**
+     * @return the select clause of these fields, in the order of toInfo
+     */
+    public String select() {
+        return select;
+    }
+
+    /**
+     * @return a PlayerInfo with these fields set from a row of the select clause
+     */
+    public PlayerInfo toInfo(Object row) {
+        Object[] values = row instanceof Object[] ? (Object[]) row : new Object[]{row};
+        PlayerInfo info = new PlayerInfo();
+        for (int i = 0; i < setters.size(); i++) {
+            setters.get(i).accept(info, values[i]);
+        }
+        return info;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", names);
+    }
+}
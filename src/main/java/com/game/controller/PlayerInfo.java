@@ -1,8 +1,13 @@
 package com.game.controller;
 
+import com.game.entity.Player;
 import com.game.entity.Profession;
 import com.game.entity.Race;
 
+import java.util.Date;
+
+import static java.util.Objects.isNull;
+
 public class PlayerInfo {
     public Long id;
     public String name;
@@ -15,6 +20,47 @@ public class PlayerInfo {
     public Integer level;
     public Integer untilNextLevel;
 
+    public PlayerInfo() {
+    }
+
+    /**
+     * Target of the "select new" projections, which read players without managing them.
+     */
+    public PlayerInfo(Long id, String name, String title, Race race, Profession profession, Date birthday,
+                      Boolean banned, Integer experience, Integer level, Integer untilNextLevel) {
+        this.id = id;
+        this.name = name;
+        this.title = title;
+        this.race = race;
+        this.profession = profession;
+        this.birthday = isNull(birthday) ? null : birthday.getTime();
+        this.banned = banned;
+        this.experience = experience;
+        this.level = level;
+        this.untilNextLevel = untilNextLevel;
+    }
+
+    public static PlayerInfo of(Player player) {
+        if (isNull(player)) return null;
+        return new PlayerInfo(player.getId(), player.getName(), player.getTitle(), player.getRace(), player.getProfession(),
+                player.getBirthday(), player.getBanned(), player.getExperience(), player.getLevel(), player.getUntilNextLevel());
+    }
+
+    public static PlayerInfo copy(PlayerInfo info) {
+        PlayerInfo copy = new PlayerInfo();
+        copy.id = info.id;
+        copy.name = info.name;
+        copy.title = info.title;
+        copy.race = info.race;
+        copy.profession = info.profession;
+        copy.birthday = info.birthday;
+        copy.banned = info.banned;
+        copy.experience = info.experience;
+        copy.level = info.level;
+        copy.untilNextLevel = info.untilNextLevel;
+        return copy;
+    }
+
     public Long getId() {
         return id;
     }
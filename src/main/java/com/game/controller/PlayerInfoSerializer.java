@@ -0,0 +1,81 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Writes a PlayerInfo field by field, with the names encoded once, instead of through the
+ * reflective bean serializer. The output is the same: every included field, null or not.
+ */
+public class PlayerInfoSerializer extends StdSerializer<PlayerInfo> {
+    private static final int ID = PlayerFields.bit("id");
+    private static final int NAME = PlayerFields.bit("name");
+    private static final int TITLE = PlayerFields.bit("title");
+    private static final int RACE = PlayerFields.bit("race");
+    private static final int PROFESSION = PlayerFields.bit("profession");
+    private static final int BIRTHDAY = PlayerFields.bit("birthday");
+    private static final int BANNED = PlayerFields.bit("banned");
+    private static final int EXPERIENCE = PlayerFields.bit("experience");
+    private static final int LEVEL = PlayerFields.bit("level");
+    private static final int UNTIL_NEXT_LEVEL = PlayerFields.bit("untilNextLevel");
+
+    private static final SerializableString ID_NAME = new SerializedString("id");
+    private static final SerializableString NAME_NAME = new SerializedString("name");
+    private static final SerializableString TITLE_NAME = new SerializedString("title");
+    private static final SerializableString RACE_NAME = new SerializedString("race");
+    private static final SerializableString PROFESSION_NAME = new SerializedString("profession");
+    private static final SerializableString BIRTHDAY_NAME = new SerializedString("birthday");
+    private static final SerializableString BANNED_NAME = new SerializedString("banned");
+    private static final SerializableString EXPERIENCE_NAME = new SerializedString("experience");
+    private static final SerializableString LEVEL_NAME = new SerializedString("level");
+    private static final SerializableString UNTIL_NEXT_LEVEL_NAME = new SerializedString("untilNextLevel");
+
+    public PlayerInfoSerializer() {
+        super(PlayerInfo.class);
+    }
+
+    @Override
+    public void serialize(PlayerInfo value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        write(value, generator, PlayerFields.ALL);
+    }
+
+    public static void write(PlayerInfo info, JsonGenerator generator, PlayerFields fields) throws IOException {
+        generator.writeStartObject();
+        if (fields.includes(ID)) writeNumber(generator, ID_NAME, info.id);
+        if (fields.includes(NAME)) writeString(generator, NAME_NAME, info.name);
+        if (fields.includes(TITLE)) writeString(generator, TITLE_NAME, info.title);
+        if (fields.includes(RACE)) writeString(generator, RACE_NAME, isNull(info.race) ? null : info.race.name());
+        if (fields.includes(PROFESSION)) writeString(generator, PROFESSION_NAME, isNull(info.profession) ? null : info.profession.name());
+        if (fields.includes(BIRTHDAY)) writeNumber(generator, BIRTHDAY_NAME, info.birthday);
+        if (fields.includes(BANNED)) {
+            generator.writeFieldName(BANNED_NAME);
+            if (isNull(info.banned)) generator.writeNull(); else generator.writeBoolean(info.banned);
+        }
+        if (fields.includes(EXPERIENCE)) writeNumber(generator, EXPERIENCE_NAME, info.experience);
+        if (fields.includes(LEVEL)) writeNumber(generator, LEVEL_NAME, info.level);
+        if (fields.includes(UNTIL_NEXT_LEVEL)) writeNumber(generator, UNTIL_NEXT_LEVEL_NAME, info.untilNextLevel);
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        generator.writeFieldName(name);
+        generator.writeString(value);
+    }
+
+    private static void writeNumber(JsonGenerator generator, SerializableString name, Long value) throws IOException {
+        generator.writeFieldName(name);
+        if (isNull(value)) generator.writeNull(); else generator.writeNumber(value);
+    }
+
+    private static void writeNumber(JsonGenerator generator, SerializableString name, Integer value) throws IOException {
+        generator.writeFieldName(name);
+        if (isNull(value)) generator.writeNull(); else generator.writeNumber(value);
+    }
+}
@@ -0,0 +1,101 @@
+package com.game.controller;
+
+import java.util.List;
+
+/**
+ * State of one ingest partition. lagMs is the age of its oldest queued event and
+ * eventsPerSecond the events it took in the last full second; the rest count from startup.
+ * deadLetters are the last events dropped after failing every attempt, oldest first.
+ */
+public class PlayerIngestMetrics {
+    public Integer partition;
+    public Integer queued;
+    public Long lagMs;
+    public Long eventsPerSecond;
+    public Long accepted;
+    public Long applied;
+    public Long skipped;
+    public Long failed;
+    public Long transactions;
+    public List<PlayerEvent> deadLetters;
+
+    public Integer getPartition() {
+        return partition;
+    }
+
+    public void setPartition(Integer partition) {
+        this.partition = partition;
+    }
+
+    public Integer getQueued() {
+        return queued;
+    }
+
+    public void setQueued(Integer queued) {
+        this.queued = queued;
+    }
+
+    public Long getLagMs() {
+        return lagMs;
+    }
+
+    public void setLagMs(Long lagMs) {
+        this.lagMs = lagMs;
+    }
+
+    public Long getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    public void setEventsPerSecond(Long eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+    }
+
+    public Long getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(Long accepted) {
+        this.accepted = accepted;
+    }
+
+    public Long getApplied() {
+        return applied;
+    }
+
+    public void setApplied(Long applied) {
+        this.applied = applied;
+    }
+
+    public Long getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(Long skipped) {
+        this.skipped = skipped;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+
+    public Long getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(Long transactions) {
+        this.transactions = transactions;
+    }
+
+    public List<PlayerEvent> getDeadLetters() {
+        return deadLetters;
+    }
+
+    public void setDeadLetters(List<PlayerEvent> deadLetters) {
+        this.deadLetters = deadLetters;
+    }
+}
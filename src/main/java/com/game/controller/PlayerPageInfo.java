@@ -0,0 +1,24 @@
+package com.game.controller;
+
+import java.util.List;
+
+public class PlayerPageInfo {
+    public List<PlayerInfo> players;
+    public Integer count;
+
+    public List<PlayerInfo> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<PlayerInfo> players) {
+        this.players = players;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,22 @@
+package com.game.controller;
+
+public class PlayerRank {
+    public Long id;
+    public Integer rank;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getRank() {
+        return rank;
+    }
+
+    public void setRank(Integer rank) {
+        this.rank = rank;
+    }
+}
@@ -0,0 +1,115 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Writes players straight into the response with PlayerInfoSerializer, in the format the
+ * request accepts: JSON (the default), Smile or CBOR, like the message converters. Nothing
+ * is built between the players and the output stream.
+ */
+@Component
+public class PlayerResponseWriter {
+    private final Map<MediaType, JsonFactory> factories = new LinkedHashMap<>();
+
+    public PlayerResponseWriter(@Autowired ObjectMapper objectMapper) {
+        factories.put(MediaType.APPLICATION_JSON, objectMapper.getFactory());
+        factories.put(MediaType.valueOf("application/x-jackson-smile"), new SmileFactory());
+        factories.put(MediaType.valueOf("application/cbor"), new CBORFactory());
+    }
+
+    public void writePlayer(HttpServletRequest request, HttpServletResponse response,
+                            PlayerInfo player, PlayerFields fields) throws IOException {
+        JsonGenerator generator = open(request, response);
+        if (isNull(generator)) return;
+        try (JsonGenerator output = generator) {
+            PlayerInfoSerializer.write(player, output, fields);
+        }
+    }
+
+    public void writePlayers(HttpServletRequest request, HttpServletResponse response,
+                             List<PlayerInfo> players, PlayerFields fields) throws IOException {
+        JsonGenerator generator = open(request, response);
+        if (isNull(generator)) return;
+        try (JsonGenerator output = generator) {
+            output.writeStartArray();
+            for (PlayerInfo player : players) {
+                PlayerInfoSerializer.write(player, output, fields);
+            }
+            output.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes an item {id, found, player} per id, in the order of the ids.
+     */
+    public void writeLookup(HttpServletRequest request, HttpServletResponse response,
+                            List<Long> ids, Map<Long, PlayerInfo> players) throws IOException {
+        JsonGenerator generator = open(request, response);
+        if (isNull(generator)) return;
+        try (JsonGenerator output = generator) {
+            output.writeStartArray();
+            for (Long id : ids) {
+                PlayerInfo player = players.get(id);
+                output.writeStartObject();
+                output.writeNumberField("id", id);
+                output.writeBooleanField("found", nonNull(player));
+                output.writeFieldName("player");
+                if (isNull(player)) output.writeNull(); else PlayerInfoSerializer.write(player, output, PlayerFields.ALL);
+                output.writeEndObject();
+            }
+            output.writeEndArray();
+        }
+    }
+
+    /**
+     * @return generator over the response in the negotiated format, or null after answering 406
+     */
+    private JsonGenerator open(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MediaType mediaType = negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        if (isNull(mediaType)) {
+            response.setStatus(HttpServletResponse.SC_NOT_ACCEPTABLE);
+            return null;
+        }
+        response.setContentType(mediaType.toString());
+        if (mediaType.equals(MediaType.APPLICATION_JSON)) response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        return factories.get(mediaType).createGenerator(response.getOutputStream());
+    }
+
+    private MediaType negotiate(String accept) {
+        if (isNull(accept) || accept.trim().isEmpty()) return MediaType.APPLICATION_JSON;
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) continue;
+            for (MediaType supported : factories.keySet()) {
+                if (mediaType.isCompatibleWith(supported)) return supported;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+package com.game.controller;
+
+public class PoolInfo {
+    public Integer maximumPoolSize;
+    public Integer activeConnections;
+    public Integer idleConnections;
+    public Integer totalConnections;
+    public Integer threadsAwaitingConnection;
+    public Double saturation;
+
+    public Integer getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public void setMaximumPoolSize(Integer maximumPoolSize) {
+        this.maximumPoolSize = maximumPoolSize;
+    }
+
+    public Integer getActiveConnections() {
+        return activeConnections;
+    }
+
+    public void setActiveConnections(Integer activeConnections) {
+        this.activeConnections = activeConnections;
+    }
+
+    public Integer getIdleConnections() {
+        return idleConnections;
+    }
+
+    public void setIdleConnections(Integer idleConnections) {
+        this.idleConnections = idleConnections;
+    }
+
+    public Integer getTotalConnections() {
+        return totalConnections;
+    }
+
+    public void setTotalConnections(Integer totalConnections) {
+        this.totalConnections = totalConnections;
+    }
+
+    public Integer getThreadsAwaitingConnection() {
+        return threadsAwaitingConnection;
+    }
+
+    public void setThreadsAwaitingConnection(Integer threadsAwaitingConnection) {
+        this.threadsAwaitingConnection = threadsAwaitingConnection;
+    }
+
+    public Double getSaturation() {
+        return saturation;
+    }
+
+    public void setSaturation(Double saturation) {
+        this.saturation = saturation;
+    }
+}
@@ -0,0 +1,49 @@
+package com.game.controller;
+
+public class QueryShapeInfo {
+    public String shape;
+    public Long executions;
+    public Double totalMs;
+    public Double averageMs;
+    public Double maxMs;
+
+    public String getShape() {
+        return shape;
+    }
+
+    public void setShape(String shape) {
+        this.shape = shape;
+    }
+
+    public Long getExecutions() {
+        return executions;
+    }
+
+    public void setExecutions(Long executions) {
+        this.executions = executions;
+    }
+
+    public Double getTotalMs() {
+        return totalMs;
+    }
+
+    public void setTotalMs(Double totalMs) {
+        this.totalMs = totalMs;
+    }
+
+    public Double getAverageMs() {
+        return averageMs;
+    }
+
+    public void setAverageMs(Double averageMs) {
+        this.averageMs = averageMs;
+    }
+
+    public Double getMaxMs() {
+        return maxMs;
+    }
+
+    public void setMaxMs(Double maxMs) {
+        this.maxMs = maxMs;
+    }
+}
@@ -2,6 +2,7 @@ package com.game.entity;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.Transaction;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.cfg.Environment;
@@ -18,7 +19,8 @@ import java.util.Properties;
 
 @NamedQuery(name = "Player_count",query = "select count(*) from Player")
 @Entity(name = "Player")
-@Table(name = "player", schema = "rpg")
+@Table(name = "player")
+@DynamicUpdate
 public class Player {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
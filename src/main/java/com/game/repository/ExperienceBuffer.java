@@ -0,0 +1,337 @@
+package com.game.repository;
+
+import com.game.controller.PlayerInfo;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Write-behind buffer of experience gains. add() sums the gains of a player in memory with a
+ * compare-and-set on the player's counter, and one flusher thread writes the sums every
+ * flushIntervalMs, sooner once maxPlayers players are waiting, in batches that also set level
+ * and untilNextLevel. Gains are in PlayerJournal before add() returns, and the gains the
+ * journal still holds on startup, once its unsettled chunks are settled against the sequence
+ * stored with the last committed chunk, are added back and written right away.
+ * Players are spread over stripes by id. The flusher takes a chunk of a stripe's gains under
+ * the stripe's write lock and keeps them in flight while the chunk's transaction runs without
+ * it; a read adds pending and in-flight gains to the cached player under an optimistic stamp.
+ * From the commit until the written players are in the player cache a stripe is landing, and
+ * reads of its in-flight players wait for that, so a gain is never seen twice or missed.
+ * Adds don't take the lock.
+ */
+@Component
+public class ExperienceBuffer implements DisposableBean {
+    private static final int MAX_EXPERIENCE = 10000000;
+    // a drained counter is on its way out of the map; adds retry on a fresh one
+    private static final long DRAINED = Long.MIN_VALUE;
+
+    private final PlayerRepository playerRepository;
+    private final PlayerJournal journal;
+    private final TransactionTemplate transactionTemplate;
+    private final Stripe[] stripes;
+    private final int maxPlayers;
+    private final int chunkSize;
+    private final AtomicInteger pendingPlayers = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    public ExperienceBuffer(@Autowired PlayerRepository playerRepository,
+                            @Autowired PlayerJournal journal,
+                            @Autowired PlatformTransactionManager transactionManager,
+                            @Autowired Environment env) {
+        this.playerRepository = playerRepository;
+        this.journal = journal;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        int stripeCount = Integer.highestOneBit(Math.max(1, env.getProperty("players.experienceBuffer.stripes", Integer.class, 16)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) stripes[i] = new Stripe();
+        this.maxPlayers = env.getProperty("players.experienceBuffer.maxPlayers", Integer.class, 10000);
+        this.chunkSize = env.getProperty("players.experienceBuffer.chunkSize", Integer.class, 1000);
+        long flushIntervalMs = env.getProperty("players.experienceBuffer.flushIntervalMs", Long.class, 1000L);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "experience-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        journal.recover(playerRepository.getJournalSequence());
+        journal.getOutstanding().forEach((id, gain) -> addPending(stripe(id), id, gain));
+        flusher.execute(this::flushQuietly);
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void add(long id, int amount) {
+        journal.append(id, amount);
+        addPending(stripe(id), id, amount);
+        if (pendingPlayers.get() >= maxPlayers && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * @return the loaded player with the gains not written yet, or null when there is none
+     */
+    public PlayerInfo read(long id, Supplier<PlayerInfo> loader) {
+        Stripe stripe = stripe(id);
+        while (true) {
+            long stamp = stripe.lock.tryOptimisticRead();
+            PlayerInfo info = stamp == 0 ? null : loader.get();
+            long gain = stamp == 0 ? 0 : stripe.gain(id);
+            if (!stripe.lock.validate(stamp)) {
+                stamp = stripe.lock.readLock();
+                try {
+                    info = loader.get();
+                    gain = stripe.gain(id);
+                } finally {
+                    stripe.lock.unlockRead(stamp);
+                }
+            }
+            // the loaded player may already hold the gain in flight
+            if (stripe.isLanding(id)) {
+                stripe.awaitLanding();
+                continue;
+            }
+            return withGain(info, gain);
+        }
+    }
+
+    /**
+     * @return the loaded players with the gains not written yet; the loader is called again
+     * when a chunk of the players lands meanwhile
+     */
+    public Map<Long, PlayerInfo> readAll(Collection<Long> ids, Supplier<Map<Long, PlayerInfo>> loader) {
+        int[] used = ids.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+        long[] stamps = new long[used.length];
+        while (true) {
+            boolean valid = true;
+            for (int i = 0; i < used.length; i++) {
+                stamps[i] = stripes[used[i]].lock.tryOptimisticRead();
+                valid &= stamps[i] != 0;
+            }
+            Map<Long, PlayerInfo> infos = valid ? loader.get() : null;
+            Map<Long, Long> gains = valid ? gains(ids) : null;
+            for (int i = 0; i < used.length; i++) {
+                valid &= stripes[used[i]].lock.validate(stamps[i]);
+            }
+            if (!valid) {
+                // in stripe order, so concurrent readAll calls never wait on each other
+                for (int i = 0; i < used.length; i++) stamps[i] = stripes[used[i]].lock.readLock();
+                try {
+                    infos = loader.get();
+                    gains = gains(ids);
+                } finally {
+                    for (int i = 0; i < used.length; i++) stripes[used[i]].lock.unlockRead(stamps[i]);
+                }
+            }
+            Stripe landing = null;
+            for (long id : ids) {
+                if (stripe(id).isLanding(id)) landing = stripe(id);
+            }
+            if (landing != null) {
+                landing.awaitLanding();
+                continue;
+            }
+            for (Map.Entry<Long, PlayerInfo> entry : infos.entrySet()) {
+                entry.setValue(withGain(entry.getValue(), gains.getOrDefault(entry.getKey(), 0L)));
+            }
+            return infos;
+        }
+    }
+
+    /**
+     * Writes the gains added so far, chunkSize players per transaction, then lets the journal
+     * drop what is written. Ids without a player any more are dropped; on a failure the chunk's
+     * gains go back to pending and the exception is rethrown.
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        boolean written = false;
+        for (Stripe stripe : stripes) {
+            // gains added while the stripe is written wait for the next flush
+            for (int chunks = stripe.pending.size() / chunkSize + 1; chunks > 0; chunks--) {
+                if (!flushChunk(stripe)) break;
+                written = true;
+            }
+        }
+        if (written) journal.checkpoint();
+    }
+
+    /**
+     * @return false when the stripe had no gains
+     */
+    private boolean flushChunk(Stripe stripe) {
+        Map<Long, Long> chunk = new LinkedHashMap<>();
+        long stamp = stripe.lock.writeLock();
+        try {
+            for (Map.Entry<Long, AtomicLong> entry : stripe.pending.entrySet()) {
+                if (chunk.size() == chunkSize) break;
+                chunk.put(entry.getKey(), entry.getValue().getAndSet(DRAINED));
+                stripe.pending.remove(entry.getKey(), entry.getValue());
+                pendingPlayers.decrementAndGet();
+            }
+            stripe.inFlight.putAll(chunk);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+        if (chunk.isEmpty()) return false;
+
+        Landing landing = new Landing(stripe);
+        try {
+            long sequence = journal.prepare(chunk);
+            try {
+                transactionTemplate.execute(status -> {
+                    TransactionSynchronizationManager.registerSynchronization(landing);
+                    // the written players are in the indexes once the transaction commits
+                    playerRepository.addExperience(chunk);
+                    playerRepository.setJournalSequence(sequence);
+                    return null;
+                });
+            } finally {
+                if (landing.committed) {
+                    journal.committed(sequence);
+                } else {
+                    journal.aborted(sequence);
+                }
+            }
+        } finally {
+            stamp = stripe.lock.writeLock();
+            try {
+                chunk.keySet().forEach(stripe.inFlight::remove);
+                if (!landing.committed) chunk.forEach((id, gain) -> addPending(stripe, id, gain));
+            } finally {
+                stripe.lock.unlockWrite(stamp);
+                stripe.landed();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        flusher.shutdown();
+        flush();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // the gains are back in pending and the next flush retries them
+        }
+    }
+
+    private void addPending(Stripe stripe, long id, long amount) {
+        while (true) {
+            AtomicLong counter = stripe.pending.computeIfAbsent(id, key -> {
+                pendingPlayers.incrementAndGet();
+                return new AtomicLong();
+            });
+            long gain = counter.get();
+            if (gain == DRAINED) {
+                stripe.pending.remove(id, counter);
+            } else if (counter.compareAndSet(gain, gain + amount)) {
+                return;
+            }
+        }
+    }
+
+    private Map<Long, Long> gains(Collection<Long> ids) {
+        Map<Long, Long> gains = new LinkedHashMap<>();
+        for (long id : ids) gains.put(id, stripe(id).gain(id));
+        return gains;
+    }
+
+    private PlayerInfo withGain(PlayerInfo info, long gain) {
+        if (isNull(info) || gain == 0) return info;
+        info.experience = (int) Math.min(info.experience + gain, MAX_EXPERIENCE);
+        info.level = playerRepository.calcLevel(info.experience);
+        info.untilNextLevel = playerRepository.calcNextLevel(info.level, info.experience);
+        return info;
+    }
+
+    private Stripe stripe(long id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private int stripeIndex(long id) {
+        return Long.hashCode(id) & (stripes.length - 1);
+    }
+
+    private static class Stripe {
+        final ConcurrentMap<Long, AtomicLong> pending = new ConcurrentHashMap<>();
+        // the chunk being written; changed under the write lock only
+        final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+        final StampedLock lock = new StampedLock();
+        volatile boolean landing;
+
+        long gain(long id) {
+            AtomicLong counter = pending.get(id);
+            long gain = isNull(counter) ? 0 : counter.get();
+            // a drained counter is only seen while the stripe is written, and the read is redone
+            return (gain == DRAINED ? 0 : gain) + inFlight.getOrDefault(id, 0L);
+        }
+
+        boolean isLanding(long id) {
+            return landing && inFlight.containsKey(id);
+        }
+
+        synchronized void awaitLanding() {
+            boolean interrupted = false;
+            while (landing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+
+        synchronized void landed() {
+            landing = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Marks the stripe landing right before the chunk commits and records whether it did.
+     */
+    private static class Landing extends TransactionSynchronizationAdapter {
+        final Stripe stripe;
+        boolean committed;
+
+        Landing(Stripe stripe) {
+            this.stripe = stripe;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            stripe.landing = true;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            committed = status == STATUS_COMMITTED;
+        }
+    }
+}
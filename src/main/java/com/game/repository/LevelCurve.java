@@ -0,0 +1,27 @@
+package com.game.repository;
+
+/**
+ * Experience needed for each level. Thresholds start at 0 for level 0 and grow strictly.
+ */
+public interface LevelCurve {
+
+    /**
+     * @return experience at which the level is reached
+     */
+    long threshold(int level);
+
+    /**
+     * @return HQL for the level reached with the given experience expression, or null when the
+     * curve has no closed form; bulk updates then recompute levels row by row
+     */
+    default String levelHql(String experience) {
+        return null;
+    }
+
+    /**
+     * @return HQL for the threshold of the given level expression, when levelHql isn't null
+     */
+    default String thresholdHql(String level) {
+        return null;
+    }
+}
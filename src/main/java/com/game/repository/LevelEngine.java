@@ -0,0 +1,130 @@
+package com.game.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Levels by experience from a precomputed table of the curve's thresholds: a level is a
+ * binary search, with no floating point. The table covers the experience a player may have,
+ * up to 10000000; beyond it levels are found on the curve itself. A new curve replaces curve
+ * and table at once.
+ * Transactions that store levels hold the curve until they end, and changeCurve waits for them
+ * and holds new ones back until the stored levels are recomputed, so no level computed with
+ * the old curve is committed after the recomputation read its row.
+ */
+@Component
+public class LevelEngine {
+    private static final int MAX_EXPERIENCE = 10000000;
+    private static final int MAX_LEVELS = 1 << 20;
+
+    private volatile Table table;
+    private final ReadWriteLock curveLock = new ReentrantReadWriteLock();
+
+    public LevelEngine(@Autowired Environment env) {
+        this.table = new Table(new QuadraticLevelCurve(env.getProperty("players.levels.step", Integer.class, 50)));
+    }
+
+    public LevelCurve getCurve() {
+        return table.curve;
+    }
+
+    /**
+     * Levels stored before the call stay as they are; see changeCurve.
+     */
+    public void setCurve(LevelCurve curve) {
+        this.table = new Table(curve);
+    }
+
+    /**
+     * Switches to the curve and runs the recomputation of the stored levels while no
+     * transaction that stores levels is running.
+     */
+    public <T> T changeCurve(LevelCurve curve, Supplier<T> recompute) {
+        curveLock.writeLock().lock();
+        try {
+            setCurve(curve);
+            return recompute.get();
+        } finally {
+            curveLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keeps the curve from being changed until the current transaction ends. Called before the
+     * transaction locks any row, since the recomputation of a change needs the rows.
+     */
+    public void holdCurve() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+        curveLock.readLock().lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                curveLock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * @return level reached with the experience, which must not be negative
+     */
+    public int level(int experience) {
+        Table current = table;
+        long[] thresholds = current.thresholds;
+        if (experience >= thresholds[thresholds.length - 1]) {
+            int level = thresholds.length - 1;
+            while (current.curve.threshold(level + 1) <= experience) level++;
+            return level;
+        }
+        int low = 0;
+        int high = thresholds.length - 1;
+        // the last threshold with thresholds[low] <= experience
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (thresholds[middle] <= experience) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return experience missing from the given one to the level after the given level
+     */
+    public int untilNextLevel(int level, int experience) {
+        Table current = table;
+        long next = level + 1 < current.thresholds.length ? current.thresholds[level + 1] : current.curve.threshold(level + 1);
+        return Math.toIntExact(next - experience);
+    }
+
+    private static class Table {
+        final LevelCurve curve;
+        final long[] thresholds;
+
+        Table(LevelCurve curve) {
+            List<Long> result = new ArrayList<>();
+            long previous = -1;
+            for (int level = 0; previous <= MAX_EXPERIENCE; level++) {
+                if (level == MAX_LEVELS) throw new IllegalArgumentException("curve grows too slowly");
+                long threshold = curve.threshold(level);
+                if (level == 0 ? threshold != 0 : threshold <= previous) {
+                    throw new IllegalArgumentException("thresholds must start at 0 and grow");
+                }
+                result.add(threshold);
+                previous = threshold;
+            }
+            this.curve = curve;
+            this.thresholds = result.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+}
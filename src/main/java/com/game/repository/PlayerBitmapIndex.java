@@ -0,0 +1,131 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * One bitmap of player ids per race, per profession and per banned state. The writes of a
+ * player reach it in commit order, so for a filter on these fields alone it is exact: the
+ * count of such a filter, and its pages in id order, are taken from it. Combined with other
+ * criteria it only narrows the rows a query looks at, and the query checks race, profession
+ * and banned again.
+ */
+@Component
+public class PlayerBitmapIndex implements PlayerIndex {
+    private final Roaring64Bitmap all = new Roaring64Bitmap();
+    private final Roaring64Bitmap[] byRace = newBitmaps(Race.values().length);
+    private final Roaring64Bitmap[] byProfession = newBitmaps(Profession.values().length);
+    private final Roaring64Bitmap banned = new Roaring64Bitmap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            all.clear();
+            for (Roaring64Bitmap bits : byRace) bits.clear();
+            for (Roaring64Bitmap bits : byProfession) bits.clear();
+            banned.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Player player) {
+        long id = player.getId();
+        lock.writeLock().lock();
+        try {
+            unset(id);
+            all.addLong(id);
+            if (nonNull(player.getRace())) byRace[player.getRace().ordinal()].addLong(id);
+            if (nonNull(player.getProfession())) byProfession[player.getProfession().ordinal()].addLong(id);
+            if (Boolean.TRUE.equals(player.getBanned())) banned.addLong(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            unset(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setBanned(long id, boolean isBanned) {
+        lock.writeLock().lock();
+        try {
+            if (!all.contains(id)) return;
+            if (isBanned) {
+                banned.addLong(id);
+            } else {
+                banned.removeLong(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the players matching all the given values, null arguments match anything
+     */
+    public Roaring64Bitmap match(Race race, Profession profession, Boolean isBanned) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap result = all.clone();
+            if (nonNull(race)) result.and(byRace[race.ordinal()]);
+            if (nonNull(profession)) result.and(byProfession[profession.ordinal()]);
+            if (nonNull(isBanned)) {
+                if (isBanned) result.and(banned);
+                else result.andNot(banned);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of the players matching all the given values, null arguments match anything
+     */
+    public long count(Race race, Profession profession, Boolean isBanned) {
+        if (nonNull(race) || nonNull(profession) || nonNull(isBanned)) {
+            return match(race, profession, isBanned).getLongCardinality();
+        }
+        lock.readLock().lock();
+        try {
+            return all.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unset(long id) {
+        all.removeLong(id);
+        for (Roaring64Bitmap bits : byRace) bits.removeLong(id);
+        for (Roaring64Bitmap bits : byProfession) bits.removeLong(id);
+        banned.removeLong(id);
+    }
+
+    private static Roaring64Bitmap[] newBitmaps(int size) {
+        Roaring64Bitmap[] result = new Roaring64Bitmap[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = new Roaring64Bitmap();
+        }
+        return result;
+    }
+}
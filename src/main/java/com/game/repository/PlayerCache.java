@@ -0,0 +1,134 @@
+package com.game.repository;
+
+import com.game.controller.PlayerInfo;
+import com.game.entity.Player;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Bounded cache of players by id (Caffeine: W-TinyLFU admission, size and time eviction).
+ * It holds copies and hands out copies, so callers can't change a cached player.
+ * As a PlayerIndex it sees every committed write: cached players are replaced or dropped,
+ * absent ones aren't added, so a reindex doesn't flood the cache.
+ */
+@Component
+public class PlayerCache implements PlayerIndex {
+    private final Cache<Long, PlayerInfo> cache;
+    private final Object writeLock = new Object();
+    private volatile long writes;
+
+    public PlayerCache(@Autowired Environment env) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(env.getProperty("players.cache.maximumSize", Long.class, 10000L))
+                .expireAfterWrite(env.getProperty("players.cache.expireAfterWriteSeconds", Long.class, 300L), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            writes++;
+            cache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void put(Player player) {
+        PlayerInfo info = PlayerInfo.of(player);
+        synchronized (writeLock) {
+            writes++;
+            // compute, unlike computeIfPresent, waits for a load of the same id in progress
+            cache.asMap().compute(player.getId(), (id, cached) -> isNull(cached) ? null : info);
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        synchronized (writeLock) {
+            writes++;
+            cache.asMap().compute(id, (key, cached) -> null);
+        }
+    }
+
+    @Override
+    public void setBanned(long id, boolean banned) {
+        change(id, info -> info.banned = banned);
+    }
+
+    @Override
+    public void setExperience(long id, int experience, int level, int untilNextLevel) {
+        change(id, info -> {
+            info.experience = experience;
+            info.level = level;
+            info.untilNextLevel = untilNextLevel;
+        });
+    }
+
+    /**
+     * @return the cached player, or the one from the loader (cached when found); the loader
+     * runs at most once per id at a time, and a write of the same id waits for it
+     */
+    public PlayerInfo get(long id, Function<Long, PlayerInfo> loader) {
+        PlayerInfo info = cache.get(id, loader);
+        return isNull(info) ? null : PlayerInfo.copy(info);
+    }
+
+    /**
+     * @return the players with the given ids by id: the cached ones plus the rest from one
+     * call of the loader. Loaded players are cached only when no write happened meanwhile,
+     * since a bulk load can't be made atomic per id.
+     */
+    public Map<Long, PlayerInfo> getAll(Collection<Long> ids, Function<Collection<Long>, Map<Long, PlayerInfo>> loader) {
+        Map<Long, PlayerInfo> result = new HashMap<>();
+        cache.getAllPresent(ids).forEach((id, info) -> result.put(id, PlayerInfo.copy(info)));
+        if (result.size() == ids.size()) return result;
+
+        long seen = writes;
+        List<Long> missing = ids.stream().filter(id -> !result.containsKey(id)).collect(Collectors.toList());
+        Map<Long, PlayerInfo> loaded = loader.apply(missing);
+        synchronized (writeLock) {
+            if (writes == seen) loaded.forEach((id, info) -> cache.asMap().putIfAbsent(id, info));
+        }
+        loaded.forEach((id, info) -> result.put(id, PlayerInfo.copy(info)));
+        return result;
+    }
+
+    /**
+     * Replaces a cached player with a changed copy; absent players stay absent.
+     */
+    private void change(long id, Consumer<PlayerInfo> change) {
+        synchronized (writeLock) {
+            writes++;
+            cache.asMap().compute(id, (key, cached) -> {
+                if (isNull(cached)) return null;
+                PlayerInfo changed = PlayerInfo.copy(cached);
+                change.accept(changed);
+                return changed;
+            });
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
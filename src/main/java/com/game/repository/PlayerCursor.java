@@ -0,0 +1,84 @@
+package com.game.repository;
+
+import com.game.controller.PlayerInfo;
+import com.game.controller.PlayerOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Continuation token of the keyset pagination: the sort key and the id of the last player
+ * of a page. The next page seeks straight past it instead of skipping the earlier rows.
+ */
+public class PlayerCursor {
+    private final PlayerOrder order;
+    private final Object key;
+    private final long id;
+
+    private PlayerCursor(PlayerOrder order, Object key, long id) {
+        this.order = order;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static PlayerCursor of(PlayerOrder order, PlayerInfo last) {
+        switch (order) {
+            case NAME:
+                return new PlayerCursor(order, last.name, last.id);
+            case EXPERIENCE:
+                return new PlayerCursor(order, last.experience, last.id);
+            case BIRTHDAY:
+                return new PlayerCursor(order, new Date(last.birthday), last.id);
+            case LEVEL:
+                return new PlayerCursor(order, last.level, last.id);
+            default:
+                return new PlayerCursor(order, last.id, last.id);
+        }
+    }
+
+    /**
+     * @return the cursor, or null if the token is malformed
+     */
+    public static PlayerCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":", 3);
+            if (parts.length != 3) return null;
+            PlayerOrder order = PlayerOrder.valueOf(parts[0]);
+            long id = Long.parseLong(parts[1]);
+            String key = parts[2];
+            switch (order) {
+                case NAME:
+                    return new PlayerCursor(order, key, id);
+                case EXPERIENCE:
+                case LEVEL:
+                    return new PlayerCursor(order, Integer.valueOf(key), id);
+                case BIRTHDAY:
+                    return new PlayerCursor(order, new Date(Long.parseLong(key)), id);
+                default:
+                    return new PlayerCursor(order, id, id);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String encode() {
+        String value = key instanceof Date ? String.valueOf(((Date) key).getTime()) : String.valueOf(key);
+        String decoded = order.name() + ":" + id + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(decoded.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public PlayerOrder getOrder() {
+        return order;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
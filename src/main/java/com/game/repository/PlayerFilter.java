@@ -0,0 +1,176 @@
+package com.game.repository;
+
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.hibernate.query.Query;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Filter of the player list shared by the page, count and page-with-count queries.
+ * Absent criteria (null, empty name/title, "ANY") match every player; an absent before is
+ * the time of the query, as the list has always had it.
+ */
+public class PlayerFilter {
+    // the DATE range both MySQL and H2 accept
+    private static final Date MIN_DATE = Date.from(Instant.parse("1000-01-01T00:00:00Z"));
+    static final String WHERE = "where p.name like :playerName " +
+            "and p.title like :playerTitle " +
+            "and p.birthday between :after and :before " +
+            "and p.experience between :minExperience and :maxExperience " +
+            "and p.level between :minLevel and :maxLevel " +
+            "and p.race in (:playerRaces) " +
+            "and p.profession in (:playerProfessions) " +
+            "and p.banned in (:playerBanned) ";
+
+    private final String name;
+    private final String title;
+    private final Date after;
+    private final Date before;
+    private final Integer minExperience;
+    private final Integer maxExperience;
+    private final Integer minLevel;
+    private final Integer maxLevel;
+    private final Race race;
+    private final Profession profession;
+    private final Boolean banned;
+
+    public PlayerFilter(String name, String title, Long after, Long before,
+                        Integer minExperience, Integer maxExperience, Integer minLevel, Integer maxLevel,
+                        String race, String profession, String banned) {
+        this.name = isNull(name) || name.isEmpty() ? null : name;
+        this.title = isNull(title) || title.isEmpty() ? null : title;
+        this.after = isNull(after) ? null : new Date(after);
+        this.before = isNull(before) ? null : new Date(before);
+        this.minExperience = minExperience;
+        this.maxExperience = maxExperience;
+        this.minLevel = minLevel;
+        this.maxLevel = maxLevel;
+        this.race = isNull(race) || race.equals("ANY") ? null : Race.valueOf(race);
+        this.profession = isNull(profession) || profession.equals("ANY") ? null : Profession.valueOf(profession);
+        this.banned = isNull(banned) || banned.equals("ANY") ? null : Boolean.parseBoolean(banned);
+    }
+
+    /**
+     * The same condition for every filter, so the queries built on it have a fixed text:
+     * an absent criterion is bound to a value that matches everything ("%", the widest range,
+     * every enum constant), before to now. The in lists always get the same number of values, a present
+     * criterion is repeated to fill them.
+     */
+    public String whereClause() {
+        return WHERE;
+    }
+
+    public boolean isEmpty() {
+        return hasOnlyEnumCriteria() && !hasEnumCriteria();
+    }
+
+    public boolean hasEnumCriteria() {
+        return nonNull(race) || nonNull(profession) || nonNull(banned);
+    }
+
+    /**
+     * @return true when race, profession and banned are the only criteria, or there are none
+     */
+    public boolean hasOnlyEnumCriteria() {
+        return isNull(name) && isNull(title) && isNull(after) && isNull(before) &&
+                isNull(minExperience) && isNull(maxExperience) && isNull(minLevel) && isNull(maxLevel);
+    }
+
+    public void bind(Query<?> query) {
+        query.setParameter("playerName", "%" + (nonNull(name) ? name + "%" : ""));
+        query.setParameter("playerTitle", "%" + (nonNull(title) ? title + "%" : ""));
+        query.setParameter("after", nonNull(after) ? after : MIN_DATE);
+        query.setParameter("before", nonNull(before) ? before : new Date());
+        query.setParameter("minExperience", nonNull(minExperience) ? minExperience : Integer.MIN_VALUE);
+        query.setParameter("maxExperience", nonNull(maxExperience) ? maxExperience : Integer.MAX_VALUE);
+        query.setParameter("minLevel", nonNull(minLevel) ? minLevel : Integer.MIN_VALUE);
+        query.setParameter("maxLevel", nonNull(maxLevel) ? maxLevel : Integer.MAX_VALUE);
+        query.setParameterList("playerRaces", anyOf(race, Race.values()));
+        query.setParameterList("playerProfessions", anyOf(profession, Profession.values()));
+        query.setParameterList("playerBanned", anyOf(banned, new Boolean[]{false, true}));
+    }
+
+    /**
+     * @return all values when the criterion is absent, else the value repeated as many times
+     */
+    private static <T> List<T> anyOf(T value, T[] all) {
+        return isNull(value) ? Arrays.asList(all) : Collections.nCopies(all.length, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PlayerFilter that = (PlayerFilter) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(title, that.title) &&
+                Objects.equals(after, that.after) &&
+                Objects.equals(before, that.before) &&
+                Objects.equals(minExperience, that.minExperience) &&
+                Objects.equals(maxExperience, that.maxExperience) &&
+                Objects.equals(minLevel, that.minLevel) &&
+                Objects.equals(maxLevel, that.maxLevel) &&
+                race == that.race &&
+                profession == that.profession &&
+                Objects.equals(banned, that.banned);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, title, after, before, minExperience, maxExperience, minLevel, maxLevel,
+                race, profession, banned);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Date getAfter() {
+        return after;
+    }
+
+    public Date getBefore() {
+        return before;
+    }
+
+    public Integer getMinExperience() {
+        return minExperience;
+    }
+
+    public Integer getMaxExperience() {
+        return maxExperience;
+    }
+
+    public Integer getMinLevel() {
+        return minLevel;
+    }
+
+    public Integer getMaxLevel() {
+        return maxLevel;
+    }
+
+    public Race getRace() {
+        return race;
+    }
+
+    public Profession getProfession() {
+        return profession;
+    }
+
+    public Boolean getBanned() {
+        return banned;
+    }
+}
@@ -0,0 +1,31 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+
+/**
+ * In-memory structure over the player table kept current by PlayerRepository: filled by
+ * reindex() at startup and updated after every committed save, update and delete. The
+ * writes reach the indexes one transaction at a time, in commit order.
+ */
+public interface PlayerIndex {
+
+    void clear();
+
+    void put(Player player);
+
+    void remove(long id);
+
+    /**
+     * A bulk update changed the banned flag of the player, and nothing else. Indexes that don't
+     * keep the flag leave this as it is.
+     */
+    default void setBanned(long id, boolean banned) {
+    }
+
+    /**
+     * A bulk update or a level recomputation changed experience, level and untilNextLevel of the
+     * player, and nothing else. Indexes that keep none of them leave this as it is.
+     */
+    default void setExperience(long id, int experience, int level, int untilNextLevel) {
+    }
+}
@@ -0,0 +1,28 @@
+package com.game.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the player indexes and compiles the list queries once the context, and with it the
+ * transaction support, is up.
+ */
+@Component
+public class PlayerIndexLoader implements ApplicationListener<ContextRefreshedEvent> {
+    private final PlayerRepository playerRepository;
+    private volatile boolean loaded;
+
+    public PlayerIndexLoader(@Autowired PlayerRepository playerRepository) {
+        this.playerRepository = playerRepository;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (loaded) return;
+        loaded = true;
+        playerRepository.reindex();
+        playerRepository.warmQueryShapes();
+    }
+}
@@ -0,0 +1,455 @@
+package com.game.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.CRC32;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Append-only journal of the experience gains held by ExperienceBuffer, in memory-mapped
+ * segment files of fixed size records. A gain is appended before it is acknowledged. A chunk
+ * of gains is journaled under a new sequence before its transaction, which stores the sequence
+ * in the player_journal table, and its commit or rollback is journaled after it. A chunk left
+ * without either by a crash is settled by recover() against the stored sequence, so a replay
+ * writes every gain exactly once.
+ * Each segment opens with a snapshot of the gains not written yet and the unsettled chunks, so
+ * a checkpoint after a flush starts a new segment and deletes the older ones; a replay reads
+ * only the newest segment with a complete snapshot.
+ * Appends reserve their slot with an atomic add and write it without a lock; only starting a
+ * segment excludes them. How an append waits for the disk is set by players.journal.fsync:
+ * write forces the segment after every append, group lets one force serve every append waiting
+ * for it, interval forces every fsyncIntervalMs and doesn't wait.
+ * A journal holds an exclusive lock on a file in its directory until destroy(), so a second
+ * process, or a second context of this one, fails on startup instead of replaying the same
+ * gains.
+ */
+@Component
+public class PlayerJournal implements DisposableBean {
+    public enum Fsync {WRITE, GROUP, INTERVAL}
+
+    public static final int RECORD_SIZE = 32;
+    private static final int GAIN = 1;
+    private static final int CHUNK = 2;
+    private static final int SNAPSHOT = 3;
+    private static final int SNAPSHOT_END = 4;
+    private static final int COMMITTED = 5;
+    private static final int ABORTED = 6;
+    private static final String PREFIX = "players-";
+    private static final String SUFFIX = ".journal";
+    private static final String LOCK_FILE = "players.lock";
+
+    private final Path dir;
+    private final FileLock dirLock;
+    private final int segmentSize;
+    private final Fsync fsync;
+    // net gain per player over the journal: gains minus committed chunks, what a replay would find
+    private final ConcurrentMap<Long, Long> outstanding = new ConcurrentHashMap<>();
+    // chunks journaled but not settled yet, by sequence
+    private final ConcurrentMap<Long, Map<Long, Long>> chunks = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final StampedLock segmentLock = new StampedLock();
+    private final Object syncLock = new Object();
+    private final ScheduledExecutorService syncer;
+    private volatile Segment segment;
+    private long syncRequested;
+    private long syncCompleted;
+
+    @Autowired
+    public PlayerJournal(Environment env) {
+        this(Paths.get(env.getRequiredProperty("players.journal.dir")),
+                env.getProperty("players.journal.segmentSizeMb", Integer.class, 16) << 20,
+                Fsync.valueOf(env.getProperty("players.journal.fsync", "group").toUpperCase()),
+                env.getProperty("players.journal.fsyncIntervalMs", Long.class, 10L));
+    }
+
+    /**
+     * Reads what the journal in the directory holds and starts a new segment with it.
+     */
+    public PlayerJournal(Path dir, int segmentSize, Fsync fsync, long fsyncIntervalMs) {
+        this.dir = dir;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(dir);
+            this.dirLock = lock(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Replay replay = replay(dir);
+            outstanding.putAll(replay.gains);
+            chunks.putAll(replay.chunks);
+            sequence.set(replay.sequence);
+            checkpoint();
+        } catch (IOException e) {
+            unlock();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            unlock();
+            throw e;
+        }
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-syncer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (fsync == Fsync.GROUP) {
+            syncer.execute(this::syncGroups);
+        } else if (fsync == Fsync.INTERVAL) {
+            syncer.scheduleWithFixedDelay(() -> segment.buffer.force(), fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return gains not written yet by player id, as read on startup; chunks not settled by
+     * recover() count as not written
+     */
+    public Map<Long, Long> getOutstanding() {
+        return new HashMap<>(outstanding);
+    }
+
+    /**
+     * Settles the chunks a crash left without a commit or rollback: those up to the sequence
+     * stored with the last committed chunk were committed, the others were not.
+     */
+    public void recover(long committedSequence) {
+        sequence.accumulateAndGet(committedSequence, Math::max);
+        for (long chunk : new ArrayList<>(chunks.keySet())) {
+            if (chunk <= committedSequence) {
+                committed(chunk);
+            } else {
+                aborted(chunk);
+            }
+        }
+    }
+
+    /**
+     * Returns once the gain is on disk, or right away with the interval policy.
+     */
+    public void append(long id, long amount) {
+        write(GAIN, id, amount, 0, () -> outstanding.merge(id, amount, PlayerJournal::sum));
+        awaitDisk();
+    }
+
+    /**
+     * Journals a chunk about to be written.
+     *
+     * @return the sequence to store in the chunk's transaction
+     */
+    public long prepare(Map<Long, Long> gains) {
+        long chunk = sequence.incrementAndGet();
+        // registered first, so a segment started meanwhile has the whole chunk in its snapshot
+        chunks.put(chunk, new HashMap<>(gains));
+        gains.forEach((id, amount) -> write(CHUNK, id, amount, chunk, () -> {
+        }));
+        awaitDisk();
+        return chunk;
+    }
+
+    /**
+     * Doesn't wait for the disk: after a crash the stored sequence tells the same.
+     */
+    public void committed(long chunk) {
+        write(COMMITTED, 0, 0, chunk, () -> {
+            Map<Long, Long> gains = chunks.remove(chunk);
+            if (nonNull(gains)) gains.forEach((id, amount) -> outstanding.merge(id, -amount, PlayerJournal::sum));
+        });
+    }
+
+    /**
+     * Returns once the rollback is on disk, before a later chunk can store a higher sequence.
+     */
+    public void aborted(long chunk) {
+        write(ABORTED, 0, 0, chunk, () -> chunks.remove(chunk));
+        awaitDisk();
+    }
+
+    /**
+     * Starts a new segment with the gains not applied yet and deletes the older segments.
+     */
+    public void checkpoint() {
+        long stamp = segmentLock.writeLock();
+        try {
+            startSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        syncer.shutdownNow();
+        try {
+            segment.buffer.force();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * @return net gain by player id in the newest segment with a complete snapshot, with
+     * unsettled chunks counted as not written
+     */
+    public static Map<Long, Long> read(Path dir) throws IOException {
+        return replay(dir).gains;
+    }
+
+    private static Replay replay(Path dir) throws IOException {
+        List<Path> segments = segments(dir);
+        Collections.reverse(segments);
+        for (Path path : segments) {
+            Replay replay = new Replay();
+            Map<Long, Boolean> settled = new HashMap<>();
+            boolean complete = false;
+            try (FileChannel channel = FileChannel.open(path)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                CRC32 crc = new CRC32();
+                byte[] record = new byte[RECORD_SIZE];
+                // appends don't finish in slot order, so a torn or empty slot is skipped, not an end
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    buffer.get(record);
+                    ByteBuffer fields = ByteBuffer.wrap(record);
+                    crc.reset();
+                    crc.update(record, 0, RECORD_SIZE - 4);
+                    if ((int) crc.getValue() != fields.getInt(RECORD_SIZE - 4)) continue;
+
+                    int type = fields.getInt(0);
+                    long id = fields.getLong(4);
+                    long amount = fields.getLong(12);
+                    long chunk = fields.getLong(20);
+                    replay.sequence = Math.max(replay.sequence, chunk);
+                    if (type == SNAPSHOT_END) {
+                        complete = true;
+                    } else if (type == GAIN || type == SNAPSHOT) {
+                        replay.gains.merge(id, amount, PlayerJournal::sum);
+                    } else if (type == CHUNK) {
+                        // a chunk journaled across a new segment is in both its snapshot and its records
+                        replay.chunks.computeIfAbsent(chunk, key -> new HashMap<>()).put(id, amount);
+                    } else if (type == COMMITTED || type == ABORTED) {
+                        settled.put(chunk, type == COMMITTED);
+                    }
+                }
+            }
+            if (!complete) continue;
+            settled.forEach((chunk, committed) -> {
+                Map<Long, Long> gains = replay.chunks.remove(chunk);
+                if (committed && nonNull(gains)) gains.forEach((id, amount) -> replay.gains.merge(id, -amount, PlayerJournal::sum));
+            });
+            return replay;
+        }
+        return new Replay();
+    }
+
+    /**
+     * Writes the record and applies it to the state a snapshot is taken from, both before a new
+     * segment can start.
+     */
+    private void write(int type, long id, long amount, long chunk, Runnable apply) {
+        while (true) {
+            long stamp = segmentLock.readLock();
+            try {
+                Segment current = segment;
+                int offset = current.position.getAndAdd(RECORD_SIZE);
+                if (offset <= current.capacity - RECORD_SIZE) {
+                    current.put(offset, type, id, amount, chunk);
+                    apply.run();
+                    return;
+                }
+            } finally {
+                segmentLock.unlockRead(stamp);
+            }
+            // full: the first to get here starts a new segment, the others retry in it
+            long writeStamp = segmentLock.writeLock();
+            try {
+                if (segment.position.get() > segment.capacity - RECORD_SIZE) startSegment();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                segmentLock.unlockWrite(writeStamp);
+            }
+        }
+    }
+
+    /**
+     * Called with the write lock held, or before the journal is shared.
+     */
+    private void startSegment() throws IOException {
+        List<Path> older = segments(dir);
+        long number = older.isEmpty() ? 1 : number(older.get(older.size() - 1)) + 1;
+        int records = outstanding.size() + chunks.values().stream().mapToInt(Map::size).sum() + 1;
+        // room for the snapshot and at least as many appends
+        int size = Math.max(segmentSize, records * RECORD_SIZE * 2);
+        Path path = dir.resolve(String.format("%s%016d%s", PREFIX, number, SUFFIX));
+        Segment next;
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.setLength(size);
+            next = new Segment(file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size), size);
+        }
+        outstanding.forEach((id, amount) -> next.put(next.position.getAndAdd(RECORD_SIZE), SNAPSHOT, id, amount, 0));
+        chunks.forEach((chunk, gains) -> gains.forEach((id, amount) ->
+                next.put(next.position.getAndAdd(RECORD_SIZE), CHUNK, id, amount, chunk)));
+        // carries the last sequence over to replays that find no chunk
+        next.put(next.position.getAndAdd(RECORD_SIZE), SNAPSHOT_END, 0, outstanding.size(), sequence.get());
+        next.buffer.force();
+        segment = next;
+        for (Path replaced : older) Files.delete(replaced);
+    }
+
+    private void awaitDisk() {
+        if (fsync == Fsync.WRITE) {
+            segment.buffer.force();
+        } else if (fsync == Fsync.GROUP) {
+            synchronized (syncLock) {
+                long ticket = ++syncRequested;
+                syncLock.notifyAll();
+                while (syncCompleted < ticket) {
+                    try {
+                        syncLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted waiting for the journal", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * One force for every append that asked before it started. A segment started meanwhile was
+     * forced with its snapshot, which holds the appends of the one it replaced.
+     */
+    private void syncGroups() {
+        try {
+            while (true) {
+                long target;
+                synchronized (syncLock) {
+                    while (syncRequested == syncCompleted) syncLock.wait();
+                    target = syncRequested;
+                }
+                segment.buffer.force();
+                synchronized (syncLock) {
+                    syncCompleted = target;
+                    syncLock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            paths.forEach(result::add);
+        }
+        result.sort(null);
+        return result;
+    }
+
+    /**
+     * @throws IllegalStateException when another journal holds the directory
+     */
+    private static FileLock lock(Path dir) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // held by another channel of this process
+            lock = null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (isNull(lock)) {
+            channel.close();
+            throw new IllegalStateException("The journal directory " + dir + " is used by another journal");
+        }
+        return lock;
+    }
+
+    private void unlock() {
+        try {
+            // closing the channel releases the lock
+            dirLock.channel().close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long number(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static Long sum(Long a, Long b) {
+        long sum = a + b;
+        return sum == 0 ? null : sum;
+    }
+
+    private static class Replay {
+        final Map<Long, Long> gains = new HashMap<>();
+        final Map<Long, Map<Long, Long>> chunks = new HashMap<>();
+        long sequence;
+    }
+
+    private static class Segment {
+        final MappedByteBuffer buffer;
+        final int capacity;
+        final AtomicInteger position = new AtomicInteger();
+
+        Segment(MappedByteBuffer buffer, int capacity) {
+            this.buffer = buffer;
+            this.capacity = capacity;
+        }
+
+        void put(int offset, int type, long id, long amount, long chunk) {
+            byte[] record = new byte[RECORD_SIZE];
+            ByteBuffer fields = ByteBuffer.wrap(record);
+            fields.putInt(0, type);
+            fields.putLong(4, id);
+            fields.putLong(12, amount);
+            fields.putLong(20, chunk);
+            CRC32 crc = new CRC32();
+            crc.update(record, 0, RECORD_SIZE - 4);
+            fields.putInt(RECORD_SIZE - 4, (int) crc.getValue());
+            // a duplicate shares the content but has a position of its own
+            ByteBuffer slot = buffer.duplicate();
+            slot.position(offset);
+            slot.put(record);
+        }
+    }
+}
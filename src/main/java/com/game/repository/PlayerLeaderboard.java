@@ -0,0 +1,217 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Experience leaderboard: an order-statistic treap (every node knows the size of its subtree)
+ * ordered by experience descending, then id ascending. Rank lookup, insert and removal are
+ * O(log n), the top n is O(log n + n).
+ */
+@Component
+public class PlayerLeaderboard implements PlayerIndex {
+    private final Map<Long, Integer> experienceById = new HashMap<>();
+    private final Random random = new Random();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            experienceById.clear();
+            root = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Player player) {
+        int experience = isNull(player.getExperience()) ? 0 : player.getExperience();
+        lock.writeLock().lock();
+        try {
+            place(player.getId(), experience);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer old = experienceById.remove(id);
+            if (nonNull(old)) root = remove(root, old, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setExperience(long id, int experience, int level, int untilNextLevel) {
+        lock.writeLock().lock();
+        try {
+            if (experienceById.containsKey(id)) place(id, experience);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return 1-based position of the player on the leaderboard, or null for an unknown player
+     */
+    public Integer rank(long id) {
+        lock.readLock().lock();
+        try {
+            Integer experience = experienceById.get(id);
+            if (isNull(experience)) return null;
+            int before = 0;
+            Node node = root;
+            while (nonNull(node)) {
+                if (compare(experience, id, node) <= 0) {
+                    node = node.left;
+                } else {
+                    before += size(node.left) + 1;
+                    node = node.right;
+                }
+            }
+            return before + 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the n most experienced players, best first
+     */
+    public List<Long> top(int n) {
+        lock.readLock().lock();
+        try {
+            List<Long> result = new ArrayList<>();
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            while (result.size() < n && (nonNull(node) || !stack.isEmpty())) {
+                while (nonNull(node)) {
+                    stack.push(node);
+                    node = node.left;
+                }
+                node = stack.pop();
+                result.add(node.id);
+                node = node.right;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void place(long id, int experience) {
+        Integer old = experienceById.put(id, experience);
+        if (nonNull(old)) {
+            if (old == experience) return;
+            root = remove(root, old, id);
+        }
+        root = insert(root, new Node(experience, id, random.nextInt()));
+    }
+
+    /**
+     * @return the order of the given player relative to the node's: experience descending, then
+     * id ascending
+     */
+    private static int compare(int experience, long id, Node node) {
+        int result = Integer.compare(node.experience, experience);
+        return result != 0 ? result : Long.compare(id, node.id);
+    }
+
+    private static int size(Node node) {
+        return isNull(node) ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    private static Node insert(Node tree, Node node) {
+        if (isNull(tree)) return node;
+        if (node.priority > tree.priority) {
+            Node[] parts = split(tree, node.experience, node.id);
+            node.left = parts[0];
+            node.right = parts[1];
+            return update(node);
+        }
+        if (compare(node.experience, node.id, tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        return update(tree);
+    }
+
+    private static Node remove(Node tree, int experience, long id) {
+        if (isNull(tree)) return null;
+        int order = compare(experience, id, tree);
+        if (order == 0) return merge(tree.left, tree.right);
+        if (order < 0) {
+            tree.left = remove(tree.left, experience, id);
+        } else {
+            tree.right = remove(tree.right, experience, id);
+        }
+        return update(tree);
+    }
+
+    /**
+     * @return the nodes before the given player and the rest
+     */
+    private static Node[] split(Node tree, int experience, long id) {
+        if (isNull(tree)) return new Node[]{null, null};
+        if (compare(experience, id, tree) > 0) {
+            Node[] parts = split(tree.right, experience, id);
+            tree.right = parts[0];
+            return new Node[]{update(tree), parts[1]};
+        }
+        Node[] parts = split(tree.left, experience, id);
+        tree.left = parts[1];
+        return new Node[]{parts[0], update(tree)};
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (isNull(left)) return right;
+        if (isNull(right)) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private static class Node {
+        final int experience;
+        final long id;
+        final int priority;
+        Node left;
+        Node right;
+        int size = 1;
+
+        Node(int experience, long id, int priority) {
+            this.experience = experience;
+            this.id = id;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.game.repository;
+
+import com.game.controller.PlayerSuggestion;
+import com.game.entity.Player;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Trie over the folded player names for type-ahead. Children are kept in sorted primitive
+ * arrays, and every node caches the ids of its MAX_LIMIT most experienced players, so a
+ * suggestion is a walk down the prefix plus a copy of that cache.
+ * A cache is kept current on inserts and experience gains; it is dropped and rebuilt from
+ * the subtree on the next lookup only when one of its players leaves or loses experience.
+ */
+@Component
+public class PlayerNameTrie implements PlayerIndex {
+    public static final int MAX_LIMIT = 20;
+
+    private static final int[] NO_KEYS = new int[0];
+    private static final long[] NO_IDS = new long[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Comparator<Long> byRank = (a, b) -> {
+        int result = Integer.compare(entries.get(b).experience, entries.get(a).experience);
+        return result != 0 ? result : Long.compare(a, b);
+    };
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            root = new Node();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Player player) {
+        int experience = isNull(player.getExperience()) ? 0 : player.getExperience();
+        lock.writeLock().lock();
+        try {
+            put(player.getId(), player.getName(), experience);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setExperience(long id, int experience, int level, int untilNextLevel) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(id);
+            if (nonNull(old) && old.experience != experience) put(id, old.name, experience);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(id);
+            if (nonNull(old)) remove(id, old);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return up to limit players whose name starts with the prefix, most experienced first
+     */
+    public List<PlayerSuggestion> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            String folded = PlayerTrigramIndex.fold(prefix);
+            if (folded.isEmpty()) return new ArrayList<>();
+            Node node = root;
+            for (int codePoint : folded.codePoints().toArray()) {
+                node = node.child(codePoint, false);
+                if (isNull(node)) return new ArrayList<>();
+            }
+            long[] top = node.top;
+            if (isNull(top)) {
+                top = collectTop(node);
+                node.top = top;
+            }
+            List<PlayerSuggestion> result = new ArrayList<>();
+            for (int i = 0; i < Math.min(limit, top.length); i++) {
+                Entry entry = entries.get(top[i]);
+                PlayerSuggestion suggestion = new PlayerSuggestion();
+                suggestion.id = top[i];
+                suggestion.name = entry.name;
+                suggestion.experience = entry.experience;
+                result.add(suggestion);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(long id, String name, int experience) {
+        Entry old = entries.get(id);
+        String folded = isNull(name) ? null : PlayerTrigramIndex.fold(name);
+        if (nonNull(old) && !old.folded.equals(folded)) {
+            remove(id, old);
+            old = null;
+        }
+        if (isNull(folded)) return;
+
+        boolean decreased = nonNull(old) && experience < old.experience;
+        entries.put(id, new Entry(name, folded, experience));
+        Node node = root;
+        for (int codePoint : folded.codePoints().toArray()) {
+            node = node.child(codePoint, true);
+            offer(node, id, decreased);
+        }
+        if (isNull(old)) node.ids = add(node.ids, id);
+    }
+
+    private void remove(long id, Entry old) {
+        entries.remove(id);
+        int[] codePoints = old.folded.codePoints().toArray();
+        Node[] path = new Node[codePoints.length + 1];
+        path[0] = root;
+        for (int i = 0; i < codePoints.length; i++) {
+            path[i + 1] = path[i].child(codePoints[i], false);
+            if (contains(path[i + 1].top, id)) path[i + 1].top = null;
+        }
+        Node last = path[codePoints.length];
+        last.ids = without(last.ids, id);
+        for (int i = codePoints.length; i > 0 && path[i].isEmpty(); i--) {
+            path[i - 1].removeChild(codePoints[i - 1]);
+        }
+    }
+
+    /**
+     * Puts the player into the node's cached top. A player who was in a full top and lost
+     * experience may now rank below players outside it, so that top is rebuilt instead.
+     */
+    private void offer(Node node, long id, boolean decreased) {
+        long[] top = node.top;
+        if (isNull(top)) return;
+        boolean present = contains(top, id);
+        if (present && decreased && top.length == MAX_LIMIT) {
+            node.top = null;
+            return;
+        }
+        Long[] ranked = Arrays.stream(present ? without(top, id) : top).boxed().toArray(Long[]::new);
+        int position = Arrays.binarySearch(ranked, id, byRank);
+        position = position < 0 ? -position - 1 : position;
+        if (position >= MAX_LIMIT) return;
+        List<Long> result = new ArrayList<>(Arrays.asList(ranked));
+        result.add(position, id);
+        node.top = result.stream().limit(MAX_LIMIT).mapToLong(Long::longValue).toArray();
+    }
+
+    private long[] collectTop(Node node) {
+        PriorityQueue<Long> worstFirst = new PriorityQueue<>(byRank.reversed());
+        List<Node> stack = new ArrayList<>();
+        stack.add(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.remove(stack.size() - 1);
+            for (long id : current.ids) {
+                worstFirst.add(id);
+                if (worstFirst.size() > MAX_LIMIT) worstFirst.poll();
+            }
+            stack.addAll(Arrays.asList(current.children));
+        }
+        return worstFirst.stream().sorted(byRank).mapToLong(Long::longValue).toArray();
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        if (isNull(ids)) return false;
+        for (long value : ids) {
+            if (value == id) return true;
+        }
+        return false;
+    }
+
+    private static long[] add(long[] ids, long id) {
+        long[] result = Arrays.copyOf(ids, ids.length + 1);
+        result[ids.length] = id;
+        return result;
+    }
+
+    private static long[] without(long[] ids, long id) {
+        return Arrays.stream(ids).filter(value -> value != id).toArray();
+    }
+
+    private static class Entry {
+        final String name;
+        final String folded;
+        final int experience;
+
+        Entry(String name, String folded, int experience) {
+            this.name = name;
+            this.folded = folded;
+            this.experience = experience;
+        }
+    }
+
+    private static class Node {
+        int[] keys = NO_KEYS;
+        Node[] children = NO_NODES;
+        long[] ids = NO_IDS;
+        volatile long[] top = NO_IDS;
+
+        Node child(int codePoint, boolean create) {
+            int position = Arrays.binarySearch(keys, codePoint);
+            if (position >= 0) return children[position];
+            if (!create) return null;
+            position = -position - 1;
+            Node child = new Node();
+            keys = insert(keys, position, codePoint);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, position);
+            grown[position] = child;
+            System.arraycopy(children, position, grown, position + 1, children.length - position);
+            children = grown;
+            return child;
+        }
+
+        void removeChild(int codePoint) {
+            int position = Arrays.binarySearch(keys, codePoint);
+            if (position < 0) return;
+            int[] shrunkKeys = new int[keys.length - 1];
+            Node[] shrunk = new Node[children.length - 1];
+            System.arraycopy(keys, 0, shrunkKeys, 0, position);
+            System.arraycopy(keys, position + 1, shrunkKeys, position, keys.length - position - 1);
+            System.arraycopy(children, 0, shrunk, 0, position);
+            System.arraycopy(children, position + 1, shrunk, position, children.length - position - 1);
+            keys = shrunkKeys;
+            children = shrunk;
+        }
+
+        boolean isEmpty() {
+            return ids.length == 0 && children.length == 0;
+        }
+
+        private static int[] insert(int[] values, int position, int value) {
+            int[] result = new int[values.length + 1];
+            System.arraycopy(values, 0, result, 0, position);
+            result[position] = value;
+            System.arraycopy(values, position, result, position + 1, values.length - position);
+            return result;
+        }
+    }
+}
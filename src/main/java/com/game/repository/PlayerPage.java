@@ -0,0 +1,23 @@
+package com.game.repository;
+
+import com.game.controller.PlayerInfo;
+
+import java.util.List;
+
+public class PlayerPage {
+    private final List<PlayerInfo> players;
+    private final int count;
+
+    public PlayerPage(List<PlayerInfo> players, int count) {
+        this.players = players;
+        this.count = count;
+    }
+
+    public List<PlayerInfo> getPlayers() {
+        return players;
+    }
+
+    public int getCount() {
+        return count;
+    }
+}
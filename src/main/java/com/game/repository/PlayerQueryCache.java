@@ -0,0 +1,114 @@
+package com.game.repository;
+
+import com.game.controller.PlayerFields;
+import com.game.controller.PlayerInfo;
+import com.game.controller.PlayerOrder;
+import com.game.entity.Player;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Cache of list pages and counts keyed by the normalized filter, order and page.
+ * Every committed write bumps one generation counter, and entries of an older generation
+ * are treated as missing, so invalidation never has to look at the keys. Stale entries are
+ * replaced on their next use or age out by size.
+ */
+@Component
+public class PlayerQueryCache implements PlayerIndex {
+    private final Cache<List<Object>, Entry> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public PlayerQueryCache(@Autowired Environment env) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(env.getProperty("players.queryCache.maximumSize", Long.class, 1000L))
+                .build();
+    }
+
+    @Override
+    public void clear() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void put(Player player) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void remove(long id) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void setBanned(long id, boolean banned) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void setExperience(long id, int experience, int level, int untilNextLevel) {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * @return number of writes seen so far; results read under one generation are interchangeable
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    public List<PlayerInfo> getAll(PlayerFilter filter, int pageNumber, int pageSize, PlayerOrder order,
+                                   PlayerFields fields, Supplier<List<PlayerInfo>> loader) {
+        return get(Arrays.asList("all", filter, pageNumber, pageSize, order, fields), loader, PlayerQueryCache::copy);
+    }
+
+    public PlayerPage getPage(PlayerFilter filter, int pageNumber, int pageSize, PlayerOrder order, Supplier<PlayerPage> loader) {
+        return get(Arrays.asList("page", filter, pageNumber, pageSize, order), loader,
+                page -> new PlayerPage(copy(page.getPlayers()), page.getCount()));
+    }
+
+    public Integer getCount(PlayerFilter filter, Supplier<Integer> loader) {
+        return get(Arrays.asList("count", filter), loader, Function.identity());
+    }
+
+    /**
+     * The generation is read before the loader runs: a write committed while it runs makes
+     * the new entry stale at once instead of serving its possibly older result.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T get(List<Object> key, Supplier<T> loader, Function<T, T> copier) {
+        long current = generation.get();
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.generation == current) return copier.apply((T) entry.value);
+
+        T value = loader.get();
+        if (isNull(value)) return null;
+        cache.put(key, new Entry(current, value));
+        return copier.apply(value);
+    }
+
+    private static List<PlayerInfo> copy(List<PlayerInfo> players) {
+        return players.stream().map(PlayerInfo::copy).collect(Collectors.toList());
+    }
+
+    private static class Entry {
+        final long generation;
+        final Object value;
+
+        Entry(long generation, Object value) {
+            this.generation = generation;
+            this.value = value;
+        }
+    }
+}
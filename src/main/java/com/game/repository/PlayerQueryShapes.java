@@ -0,0 +1,158 @@
+package com.game.repository;
+
+import com.game.controller.PlayerFields;
+import com.game.controller.PlayerOrder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The fixed set of list queries: every filter binds into the same condition (see
+ * PlayerFilter.whereClause), so a query differs only by its kind, the order and whether it
+ * is narrowed to candidate ids. All of them are known up front, compiled by Hibernate at
+ * startup and timed per shape. Pages are read as PlayerInfo projections, not entities.
+ * Pages narrowed to some fields (fields=) select only those columns. Such a variant is
+ * made on first use, at most one per field set, and is timed as its shape.
+ */
+@Component
+public class PlayerQueryShapes {
+    private static final String ID_CONDITION = "and p.id in (:candidateIds) ";
+    static final String SELECT_INFO = "select new com.game.controller.PlayerInfo(p.id, p.name, p.title, "
+            + "p.race, p.profession, p.birthday, p.banned, p.experience, p.level, p.untilNextLevel) ";
+
+    private final Map<String, Shape> shapes = new LinkedHashMap<>();
+    private final ConcurrentMap<String, Shape> narrowed = new ConcurrentHashMap<>();
+
+    public PlayerQueryShapes() {
+        for (boolean byIds : new boolean[]{false, true}) {
+            String where = PlayerFilter.WHERE + (byIds ? ID_CONDITION : "");
+            add(countName(byIds), "select count(*) from Player as p " + where);
+            for (PlayerOrder order : PlayerOrder.values()) {
+                String field = "p." + order.getFieldName();
+                String orderBy = "order by " + field + " asc, p.id asc";
+                add(pageName(order, byIds), SELECT_INFO + "from Player as p " + where + orderBy);
+                String seek = order == PlayerOrder.ID
+                        ? "and p.id > :cursorId "
+                        : "and (" + field + " > :cursorKey or (" + field + " = :cursorKey and p.id > :cursorId)) ";
+                add(seekName(order, byIds), SELECT_INFO + "from Player as p " + where + seek + orderBy);
+            }
+        }
+    }
+
+    public Shape count(boolean byIds) {
+        return shapes.get(countName(byIds));
+    }
+
+    public Shape page(PlayerOrder order, boolean byIds) {
+        return shapes.get(pageName(order, byIds));
+    }
+
+    public Shape page(PlayerOrder order, boolean byIds, PlayerFields fields) {
+        return narrow(page(order, byIds), fields);
+    }
+
+    /**
+     * @return the page that follows a cursor in the given order, ties broken by id
+     */
+    public Shape seek(PlayerOrder order, boolean byIds) {
+        return shapes.get(seekName(order, byIds));
+    }
+
+    public Shape seek(PlayerOrder order, boolean byIds, PlayerFields fields) {
+        return narrow(seek(order, byIds), fields);
+    }
+
+    public Collection<Shape> all() {
+        return Collections.unmodifiableCollection(new ArrayList<>(shapes.values()));
+    }
+
+    private Shape narrow(Shape shape, PlayerFields fields) {
+        if (fields.isAll()) return shape;
+        return narrowed.computeIfAbsent(shape.getName() + "[" + fields + "]",
+                key -> new Shape(shape, fields.select() + shape.getHql().substring(SELECT_INFO.length())));
+    }
+
+    private void add(String name, String hql) {
+        shapes.put(name, new Shape(name, hql));
+    }
+
+    private static String countName(boolean byIds) {
+        return "count" + (byIds ? ":ids" : "");
+    }
+
+    private static String pageName(PlayerOrder order, boolean byIds) {
+        return "page:" + order + (byIds ? ":ids" : "");
+    }
+
+    private static String seekName(PlayerOrder order, boolean byIds) {
+        return "seek:" + order + (byIds ? ":ids" : "");
+    }
+
+    public static class Shape {
+        private final String name;
+        private final String hql;
+        private final LongAdder executions;
+        private final LongAdder totalNanos;
+        private final LongAccumulator maxNanos;
+
+        Shape(String name, String hql) {
+            this.name = name;
+            this.hql = hql;
+            this.executions = new LongAdder();
+            this.totalNanos = new LongAdder();
+            this.maxNanos = new LongAccumulator(Math::max, 0);
+        }
+
+        /**
+         * Variant of a shape with another select clause, sharing its name and timings.
+         */
+        Shape(Shape shape, String hql) {
+            this.name = shape.name;
+            this.hql = hql;
+            this.executions = shape.executions;
+            this.totalNanos = shape.totalNanos;
+            this.maxNanos = shape.maxNanos;
+        }
+
+        public <T> T time(Supplier<T> query) {
+            long start = System.nanoTime();
+            try {
+                return query.get();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                executions.increment();
+                totalNanos.add(elapsed);
+                maxNanos.accumulate(elapsed);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHql() {
+            return hql;
+        }
+
+        public long getExecutions() {
+            return executions.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+    }
+}
@@ -1,149 +1,736 @@
 package com.game.repository;
 
+import com.game.controller.PlayerFields;
+import com.game.controller.PlayerInfo;
+import com.game.controller.PlayerOrder;
 import com.game.entity.Player;
-import com.game.entity.Profession;
-import com.game.entity.Race;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.SessionFactory;
-import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
-import org.hibernate.cfg.Environment;
 import org.hibernate.query.Query;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Repository;
-//import javax.annotation.PreDestroy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-
-import java.util.Date;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 
 @Repository
-public class PlayerRepository{
-    private final SessionFactory sessionFactory;
-
-    public PlayerRepository() {
-        Properties properties = new Properties();
-        properties.put(Environment.DRIVER, "com.mysql.cj.jdbc.Driver");
-        properties.put(Environment.URL, "jdbc:mysql://localhost:3306/rpg");
-        properties.put(Environment.DIALECT, "org.hibernate.dialect.MySQL8Dialect");
-        properties.put(Environment.HBM2DDL_AUTO, "update");
-        properties.put(Environment.USER, "root");
-        properties.put(Environment.PASS, "root");
-        sessionFactory = new Configuration()
-                .setProperties(properties)
-                .addAnnotatedClass(Player.class)
-                .buildSessionFactory();
-    }
-
-    public List<Player> getAll(String playerName, String playerTitle, Date after, Date before,
-                               Integer minExperience, Integer maxExperience, Integer minLevel, Integer maxLevel,
-                               String playerRace, String playerProfession, String playerBanned,
-                               int pageNumber, int pageSize, String fieldOrder) {
-        try (Session session = sessionFactory.openSession()) {
-
-            String nameCondition = "p.name like :playerName ";
-            String titleCondition = "and p.title like :playerTitle ";
-            String birthdayCondition = "and p.birthday between :after and :before ";
-            String experienceCondition =  "and p.experience between :minExperience and :maxExperience ";
-            String levelCondition =   "and p.level between :minLevel and :maxLevel ";
-            String raceCondition =  playerRace.equals("ANY") ? "" : "and p.race=:playerRace ";
-            String professionCondition =  playerProfession.equals("ANY") ? "" : "and p.profession=:playerProfession ";
-            String bannedCondition =  playerBanned.equals("ANY") ? "" : "and p.banned=:playerBanned ";
-
-            String hql = "from Player as p where " +
-                    nameCondition +
-                    titleCondition +
-                    birthdayCondition +
-                    experienceCondition +
-                    levelCondition +
-                    raceCondition +
-                    professionCondition +
-                    bannedCondition +
-                    "order by "+ fieldOrder + " asc";
-            Query<Player> query = session.createQuery(hql, Player.class);
-            query.setParameter("playerName", "%"+playerName+"%");
-            query.setParameter("playerTitle", "%"+playerTitle+"%");
-            query.setParameter("after", after);
-            query.setParameter("before", before);
-            query.setParameter("minExperience", minExperience);
-            query.setParameter("maxExperience", maxExperience);
-            query.setParameter("minLevel", minLevel);
-            query.setParameter("maxLevel", maxLevel);
-            if (!playerRace.equals("ANY")){
-                query.setParameter("playerRace", Race.valueOf(playerRace));
-            }
-            if (!playerProfession.equals("ANY")){
-                query.setParameter("playerProfession", Profession.valueOf(playerProfession));
-            }
-            if (!playerBanned.equals("ANY")){
-                query.setParameter("playerBanned", Boolean.parseBoolean(playerBanned));
-            }
-            query.setFirstResult(pageNumber * pageSize);
-            query.setMaxResults(pageSize);
-            return query.getResultList();
+public class PlayerRepository {
+    private static final String INSERT_FAILED = "insert failed";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlayerRepository.class);
+    private static final int MAX_CANDIDATE_IDS = 1000;
+    private static final int SCROLL_FETCH_SIZE = 1000;
+    private static final int MAX_EXPERIENCE = 10000000;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private static final String INSERT_SQL = "insert into player " +
+            "(name, title, race, profession, birthday, banned, experience, level, untilNextLevel) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LEVELS_SELECT_SQL = "select id, experience, level, untilNextLevel from player " +
+            "where id between ? and ?";
+    private static final String EXPERIENCE_UPDATE_SQL = "update player set experience = ?, level = ?, untilNextLevel = ? " +
+            "where id = ?";
+    // experience is compared so a player written meanwhile keeps the level computed for it
+    private static final String LEVELS_UPDATE_SQL = "update player set level = ?, untilNextLevel = ? " +
+            "where id = ? and experience = ?";
+    private static final String JOURNAL_SEQUENCE_SELECT_SQL = "select appliedSequence from player_journal";
+    private static final String JOURNAL_SEQUENCE_UPDATE_SQL = "update player_journal set appliedSequence = ?";
+
+    private final PlayerBitmapIndex bitmapIndex;
+    private final PlayerTrigramIndex trigramIndex;
+    private final PlayerQueryShapes queryShapes;
+    private final List<PlayerIndex> indexes;
+    private final LevelEngine levelEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate refreshTemplate;
+    private final int jdbcBatchSize;
+    private final int chunkSize;
+    private final int deleteChunkSize;
+    private final int levelChunkSize;
+    private final int levelThreads;
+    // orders the index updates of concurrent writers, see afterCommit
+    private final AtomicLong commitSequence = new AtomicLong();
+    // sequence of the last transaction whose index update had its turn; guarded by indexLock
+    private long indexedSequence;
+    private final Object indexLock = new Object();
+
+    public PlayerRepository(@Autowired PlayerBitmapIndex bitmapIndex,
+                            @Autowired PlayerTrigramIndex trigramIndex,
+                            @Autowired PlayerQueryShapes queryShapes,
+                            @Autowired List<PlayerIndex> indexes,
+                            @Autowired LevelEngine levelEngine,
+                            @Autowired PlatformTransactionManager transactionManager,
+                            @Autowired Environment env) {
+        this.bitmapIndex = bitmapIndex;
+        this.trigramIndex = trigramIndex;
+        this.queryShapes = queryShapes;
+        this.indexes = indexes;
+        this.levelEngine = levelEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // index refreshes run after a commit, when the finished transaction is still bound
+        this.refreshTemplate = new TransactionTemplate(transactionManager);
+        this.refreshTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.refreshTemplate.setReadOnly(true);
+        this.jdbcBatchSize = env.getProperty("players.batch.jdbcBatchSize", Integer.class, 500);
+        this.chunkSize = env.getProperty("players.batch.chunkSize", Integer.class, 5000);
+        this.deleteChunkSize = env.getProperty("players.delete.chunkSize", Integer.class, 1000);
+        this.levelChunkSize = env.getProperty("players.levels.chunkSize", Integer.class, 5000);
+        this.levelThreads = env.getProperty("players.levels.threads", Integer.class,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    private Session session() {
+        return entityManager.unwrap(Session.class);
+    }
+
+    /**
+     * @return the page with at least the given fields set; the columns of the rest aren't read
+     */
+    @Transactional(readOnly = true)
+    public List<PlayerInfo> getAll(PlayerFilter filter, int pageNumber, int pageSize, PlayerOrder order, PlayerFields fields) {
+        try {
+            Roaring64Bitmap exact = exactIds(filter, order);
+            if (nonNull(exact)) {
+                List<Long> ids = exact.getLongCardinality() > (long) pageNumber * pageSize
+                        ? idsFrom(exact, exact.select((long) pageNumber * pageSize), pageSize)
+                        : new ArrayList<>();
+                if (ids.isEmpty()) return new ArrayList<>();
+                return pageQuery(session(), filter, ids, 0, pageSize, order, fields);
+            }
+            List<Long> ids = candidateIds(filter);
+            if (nonNull(ids) && ids.isEmpty()) return new ArrayList<>();
+            return pageQuery(session(), filter, ids, pageNumber, pageSize, order, fields);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return number of the players matching the filter, or null when it couldn't be counted
+     */
+    @Transactional(readOnly = true)
+    public Integer getAllCount(PlayerFilter filter) {
+        try {
+            if (filter.hasOnlyEnumCriteria()) return bitmapCount(filter);
+            List<Long> ids = candidateIds(filter);
+            if (nonNull(ids) && ids.isEmpty()) return 0;
+            return countQuery(session(), filter, ids);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Page and total count of the same filter in one read-only transaction.
+     * The count query is skipped when the page itself tells the total: a short page is
+     * the last one, unless it is an empty page past the end.
+     */
+    @Transactional(readOnly = true)
+    public PlayerPage getPage(PlayerFilter filter, int pageNumber, int pageSize, PlayerOrder order) {
+        try {
+            Roaring64Bitmap exact = exactIds(filter, order);
+            if (nonNull(exact)) {
+                int count = Math.toIntExact(exact.getLongCardinality());
+                if (count <= pageNumber * pageSize) return new PlayerPage(new ArrayList<>(), count);
+                List<Long> ids = idsFrom(exact, exact.select((long) pageNumber * pageSize), pageSize);
+                return new PlayerPage(pageQuery(session(), filter, ids, 0, pageSize, order, PlayerFields.ALL), count);
+            }
+            List<Long> ids = candidateIds(filter);
+            if (nonNull(ids) && ids.isEmpty()) return new PlayerPage(new ArrayList<>(), 0);
+            Session session = session();
+            List<PlayerInfo> players = pageQuery(session, filter, ids, pageNumber, pageSize, order, PlayerFields.ALL);
+            int count;
+            if (filter.hasOnlyEnumCriteria()) {
+                count = bitmapCount(filter);
+            } else if (players.size() < pageSize && (!players.isEmpty() || pageNumber == 0)) {
+                count = pageNumber * pageSize + players.size();
+            } else {
+                count = countQuery(session, filter, ids);
+            }
+            return new PlayerPage(players, count);
         } catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    public int getAllCount(String playerName, String playerTitle, Date after, Date before,
-                           Integer minExperience, Integer maxExperience, Integer minLevel, Integer maxLevel,
-                           String playerRace, String playerProfession, String playerBanned) {
-        try (Session session = sessionFactory.openSession()) {
-            String nameCondition = "p.name like :playerName ";
-            String titleCondition = "and p.title like :playerTitle ";
-            String birthdayCondition = "and p.birthday between :after and :before ";
-            String experienceCondition =  "and p.experience between :minExperience and :maxExperience ";
-            String levelCondition =   "and p.level between :minLevel and :maxLevel ";
-            String raceCondition =  playerRace.equals("ANY") ? "" : "and p.race=:playerRace ";
-            String professionCondition =  playerProfession.equals("ANY") ? "" : "and p.profession=:playerProfession ";
-            String bannedCondition =  playerBanned.equals("ANY") ? "" : "and p.banned=:playerBanned ";
-
-            String hql = "sel" +
-                    "ect count(*) from Player as p where " +
-                    nameCondition +
-                    titleCondition +
-                    birthdayCondition +
-                    experienceCondition +
-                    levelCondition +
-                    raceCondition +
-                    professionCondition+
-                    bannedCondition;
-            Query<Long> query = session.createQuery(hql, Long.class);
-            query.setParameter("playerName", "%"+playerName+"%");
-            query.setParameter("playerTitle", "%"+playerTitle+"%");
-            query.setParameter("after", after);
-            query.setParameter("before", before);
-            query.setParameter("minExperience", minExperience);
-            query.setParameter("maxExperience", maxExperience);
-            query.setParameter("minLevel", minLevel);
-            query.setParameter("maxLevel", maxLevel);
-            if (!playerRace.equals("ANY")){
-                query.setParameter("playerRace", Race.valueOf(playerRace));
-            }
-            if (!playerProfession.equals("ANY")){
-                query.setParameter("playerProfession", Profession.valueOf(playerProfession));
-            }
-            if (!playerBanned.equals("ANY")){
-                query.setParameter("playerBanned", Boolean.parseBoolean(playerBanned));
-            }
-            return Math.toIntExact(query.uniqueResult());
+    /**
+     * Keyset page: the players that follow the cursor in the given order, ties broken by id.
+     * A null cursor returns the first page. Besides the given fields, the ones of the next
+     * cursor are always set.
+     */
+    @Transactional(readOnly = true)
+    public List<PlayerInfo> getAfter(PlayerFilter filter, PlayerOrder order, PlayerCursor cursor, int pageSize, PlayerFields fields) {
+        try {
+            PlayerFields columns = fields.withCursor(order);
+            Roaring64Bitmap exact = exactIds(filter, order);
+            if (nonNull(exact)) {
+                if (nonNull(cursor) && cursor.getId() == Long.MAX_VALUE) return new ArrayList<>();
+                List<Long> ids = idsFrom(exact, isNull(cursor) ? 0 : cursor.getId() + 1, pageSize);
+                if (ids.isEmpty()) return new ArrayList<>();
+                return pageQuery(session(), filter, ids, 0, pageSize, order, columns);
+            }
+            List<Long> ids = candidateIds(filter);
+            if (nonNull(ids) && ids.isEmpty()) return new ArrayList<>();
+            if (isNull(cursor)) return pageQuery(session(), filter, ids, 0, pageSize, order, columns);
+
+            PlayerQueryShapes.Shape shape = queryShapes.seek(order, nonNull(ids), columns);
+            Query<?> query = session().createQuery(shape.getHql());
+            filter.bind(query);
+            bindIds(query, ids);
+            query.setParameter("cursorId", cursor.getId());
+            if (order != PlayerOrder.ID) {
+                query.setParameter("cursorKey", cursor.getKey());
+            }
+            query.setMaxResults(pageSize);
+            return shape.time(() -> results(query, columns));
         } catch (Exception e) {
             e.printStackTrace();
-            return 0;
+            return null;
+        }
+    }
+
+    private List<PlayerInfo> pageQuery(Session session, PlayerFilter filter, List<Long> ids,
+                                       int pageNumber, int pageSize, PlayerOrder order, PlayerFields fields) {
+        PlayerQueryShapes.Shape shape = queryShapes.page(order, nonNull(ids), fields);
+        Query<?> query = session.createQuery(shape.getHql());
+        filter.bind(query);
+        bindIds(query, ids);
+        query.setFirstResult(pageNumber * pageSize);
+        query.setMaxResults(pageSize);
+        return shape.time(() -> results(query, fields));
+    }
+
+    /**
+     * @return the rows of a page query: PlayerInfo projections already, or the selected columns
+     */
+    @SuppressWarnings("unchecked")
+    private static List<PlayerInfo> results(Query<?> query, PlayerFields fields) {
+        List<?> rows = query.getResultList();
+        if (fields.isAll()) return (List<PlayerInfo>) rows;
+        return rows.stream().map(fields::toInfo).collect(Collectors.toList());
+    }
+
+    private int countQuery(Session session, PlayerFilter filter, List<Long> ids) {
+        PlayerQueryShapes.Shape shape = queryShapes.count(nonNull(ids));
+        Query<Long> query = session.createQuery(shape.getHql(), Long.class);
+        filter.bind(query);
+        bindIds(query, ids);
+        return Math.toIntExact(shape.time(query::uniqueResult));
+    }
+
+    /**
+     * Compiles every query shape, so that no request pays for parsing one.
+     */
+    @Transactional(readOnly = true)
+    public void warmQueryShapes() {
+        Session session = session();
+        queryShapes.all().forEach(shape -> session.createQuery(shape.getHql()));
+    }
+
+    /**
+     * Ids the filter can match according to the bitmap and trigram indexes, or null when the
+     * indexes don't narrow the filter down to a list short enough for an id lookup. Used where
+     * exactIds doesn't apply: the candidates may be a superset, or the table orders the page.
+     */
+    private List<Long> candidateIds(PlayerFilter filter) {
+        Roaring64Bitmap enumIds = filter.hasEnumCriteria()
+                ? bitmapIndex.match(filter.getRace(), filter.getProfession(), filter.getBanned())
+                : null;
+        Roaring64Bitmap textIds = trigramIndex.match(filter.getName(), filter.getTitle());
+        if (nonNull(textIds)) {
+            List<Long> result = new ArrayList<>();
+            for (LongIterator it = textIds.getLongIterator(); it.hasNext(); ) {
+                long id = it.next();
+                if (isNull(enumIds) || enumIds.contains(id)) {
+                    if (result.size() == MAX_CANDIDATE_IDS) return null;
+                    result.add(id);
+                }
+            }
+            return result;
+        }
+        if (isNull(enumIds) || enumIds.getLongCardinality() > MAX_CANDIDATE_IDS) return null;
+        List<Long> result = new ArrayList<>();
+        enumIds.forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Ids the filter matches according to the bitmap index when the index alone decides the
+     * filter and the page is in id order, or null when the table has to order the page.
+     */
+    private Roaring64Bitmap exactIds(PlayerFilter filter, PlayerOrder order) {
+        if (order != PlayerOrder.ID || !filter.hasOnlyEnumCriteria()) return null;
+        return bitmapIndex.match(filter.getRace(), filter.getProfession(), filter.getBanned());
+    }
+
+    private int bitmapCount(PlayerFilter filter) {
+        return Math.toIntExact(bitmapIndex.count(filter.getRace(), filter.getProfession(), filter.getBanned()));
+    }
+
+    /**
+     * @return up to limit ids of the bitmap, starting at the first id not below from
+     */
+    private static List<Long> idsFrom(Roaring64Bitmap ids, long from, int limit) {
+        List<Long> result = new ArrayList<>();
+        for (LongIterator it = ids.getLongIteratorFrom(from); it.hasNext() && result.size() < limit; ) {
+            result.add(it.next());
+        }
+        return result;
+    }
+
+    private static void bindIds(Query<?> query, List<Long> ids) {
+        if (nonNull(ids)) query.setParameterList("candidateIds", ids);
+    }
+
+    /**
+     * Reloads every PlayerIndex from the table. Needed at startup and whenever the table
+     * was changed behind the repository's back.
+     */
+    @Transactional(readOnly = true)
+    public void reindex() {
+        synchronized (indexLock) {
+            indexes.forEach(PlayerIndex::clear);
+            scroll(session().createQuery("from Player", Player.class),
+                    player -> indexes.forEach(index -> index.put(player)));
+        }
+    }
+
+    /**
+     * Streams every player matching the filter, in id order, to the consumer. The rows come
+     * through a forward-only cursor as projections, so memory use doesn't depend on the
+     * number of players.
+     */
+    @Transactional(readOnly = true)
+    public void export(PlayerFilter filter, Consumer<PlayerInfo> consumer) {
+        Query<PlayerInfo> query = session().createQuery(PlayerQueryShapes.SELECT_INFO + "from Player as p " +
+                filter.whereClause() + "order by p.id asc", PlayerInfo.class);
+        filter.bind(query);
+        scroll(query, consumer);
+    }
+
+    /**
+     * Adds experience to every player matching the filter, capped at MAX_EXPERIENCE, with one
+     * update statement. Level and experience until the next level are recomputed in the same
+     * statement when the level curve has an HQL form, and from the level table otherwise.
+     *
+     * @return number of updated players
+     */
+    @Transactional
+    public int addExperience(PlayerFilter filter, int amount) {
+        levelEngine.holdCurve();
+        LevelCurve curve = levelEngine.getCurve();
+        String experience = "(case when p.experience > :maxExperienceCap - :amount then :maxExperienceCap " +
+                "else (p.experience + :amount) end)";
+        String level = curve.levelHql(experience);
+        // MySQL applies assignments left to right and lets later ones see the new values,
+        // so experience goes last and the others only read the old one
+        String set = (isNull(level) ? "" : "p.level = " + level + ", " +
+                "p.untilNextLevel = " + curve.thresholdHql(level + " + 1") + " - " + experience + ", ") +
+                "p.experience = " + experience + " ";
+
+        List<Progress> locked = new ArrayList<>();
+        // the update leaves a missing experience missing, and only the table knows the rest then
+        List<Long> unknown = new ArrayList<>();
+        lockFiltered(filter, "p.id, p.experience, p.level, p.untilNextLevel", row -> {
+            if (isNull(row[1])) {
+                unknown.add((Long) row[0]);
+            } else {
+                locked.add(new Progress((Long) row[0], (Integer) row[1], orNone(row[2]), orNone(row[3])));
+            }
+        });
+        int updated = updateFiltered(filter, set, update -> {
+            update.setParameter("amount", amount);
+            update.setParameter("maxExperienceCap", MAX_EXPERIENCE);
+        });
+        // the locked rows can't change meanwhile, so their new values follow from the old ones
+        List<Progress> changed = new ArrayList<>(locked.size());
+        List<Progress> levelsToWrite = new ArrayList<>();
+        for (Progress old : locked) {
+            int newExperience = (int) Math.min((long) old.experience + amount, MAX_EXPERIENCE);
+            int newLevel = calcLevel(newExperience);
+            Progress player = new Progress(old.id, newExperience, newLevel, calcNextLevel(newLevel, newExperience));
+            changed.add(player);
+            if (player.level != old.level || player.untilNextLevel != old.untilNextLevel) levelsToWrite.add(player);
+        }
+        if (isNull(level)) writeLevels(levelsToWrite);
+        afterBulkCommit(updated, locked.size() + unknown.size(), () -> {
+            setExperienceInIndexes(changed);
+            if (!unknown.isEmpty()) refreshTemplate.execute(status -> {
+                putIntoIndexes(session().createQuery("from Player as p where p.id in (:ids)", Player.class)
+                        .setParameterList("ids", unknown).getResultList());
+                return null;
+            });
+        });
+        return updated;
+    }
+
+    /**
+     * @return the value of a nullable int column, or -1, which no level or untilNextLevel has
+     */
+    private static int orNone(Object value) {
+        return isNull(value) ? -1 : (Integer) value;
+    }
+
+    /**
+     * Adds each gain to its player, capped at MAX_EXPERIENCE: the players are read with a write
+     * lock, then experience, level and untilNextLevel are written in JDBC batches. Ids without a
+     * player are skipped.
+     *
+     * @return number of updated players
+     */
+    @Transactional
+    public int addExperience(Map<Long, Long> gains) {
+        levelEngine.holdCurve();
+        Session session = session();
+        List<Player> players = session.createQuery("from Player as p where p.id in (:ids)", Player.class)
+                .setParameterList("ids", gains.keySet())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        // detached, so the changes below are written by the batch only
+        session.clear();
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(EXPERIENCE_UPDATE_SQL)) {
+                for (int i = 0; i < players.size(); i++) {
+                    Player player = players.get(i);
+                    int experience = (int) Math.min(player.getExperience() + gains.get(player.getId()), MAX_EXPERIENCE);
+                    player.setExperience(experience);
+                    player.setLevel(calcLevel(experience));
+                    player.setUntilNextLevel(calcNextLevel(player.getLevel(), experience));
+
+                    statement.setInt(1, player.getExperience());
+                    statement.setInt(2, player.getLevel());
+                    statement.setInt(3, player.getUntilNextLevel());
+                    statement.setLong(4, player.getId());
+                    statement.addBatch();
+                    if ((i + 1) % jdbcBatchSize == 0 || i == players.size() - 1) statement.executeBatch();
+                }
+            }
+        });
+        afterCommit(() -> putIntoIndexes(players));
+        return players.size();
+    }
+
+    /**
+     * Stores the PlayerJournal sequence of the chunk written in the current transaction.
+     */
+    @Transactional
+    public void setJournalSequence(long sequence) {
+        session().doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(JOURNAL_SEQUENCE_UPDATE_SQL)) {
+                statement.setLong(1, sequence);
+                statement.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * @return the PlayerJournal sequence of the last committed chunk
+     */
+    @Transactional(readOnly = true)
+    public long getJournalSequence() {
+        return session().doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(JOURNAL_SEQUENCE_SELECT_SQL);
+                 ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : 0L;
+            }
+        });
+    }
+
+    /**
+     * Bans or unbans every player matching the filter with one update statement.
+     *
+     * @return number of updated players
+     */
+    @Transactional
+    public int setBanned(PlayerFilter filter, boolean banned) {
+        Roaring64Bitmap ids = new Roaring64Bitmap();
+        lockFiltered(filter, "p.id", row -> ids.addLong((Long) row[0]));
+        int updated = updateFiltered(filter, "p.banned = :newBanned ", update -> update.setParameter("newBanned", banned));
+        afterBulkCommit(updated, ids.getLongCardinality(), () -> ids.forEach(id ->
+                indexes.forEach(index -> index.setBanned(id, banned))));
+        return updated;
+    }
+
+    /**
+     * Reads the given columns of the filtered players (no entities) and locks their rows for
+     * the transaction, so that the update that follows changes exactly these players and the
+     * indexes can be told what changed without reading them back.
+     */
+    private void lockFiltered(PlayerFilter filter, String columns, Consumer<Object[]> consumer) {
+        Query<?> select = session().createQuery("select " + columns + " from Player as p " + filter.whereClause());
+        filter.bind(select);
+        select.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        try (ScrollableResults results = select.setFetchSize(SCROLL_FETCH_SIZE).scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) consumer.accept(results.get());
         }
     }
 
+    /**
+     * @param set assignments of the update, bound by the binder
+     * @return number of updated players
+     */
+    private int updateFiltered(PlayerFilter filter, String set, Consumer<Query<?>> binder) {
+        Query<?> update = session().createQuery("update Player p set " + set + filter.whereClause());
+        filter.bind(update);
+        binder.accept(update);
+        return update.executeUpdate();
+    }
+
+    /**
+     * Runs the index update of a bulk statement once it is committed. A player inserted between
+     * the locking select and the statement, where the database doesn't lock the gap, is changed
+     * without being known here: when the statement changed another number of rows than were
+     * locked, the indexes are reloaded from the table instead.
+     */
+    private void afterBulkCommit(int updated, long locked, Runnable action) {
+        if (updated == locked) {
+            afterCommit(action);
+        } else {
+            afterCommit(() -> refreshTemplate.execute(status -> {
+                reindex();
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Recomputes level and untilNextLevel of every stored player with the current level curve,
+     * after LevelEngine.setCurve. The id range is cut into levelChunkSize ranges, recomputed by
+     * levelThreads workers, each range in a transaction of its own; only changed rows are
+     * written, in JDBC batches, and the indexes get their new values without reading them back.
+     *
+     * @return number of players whose level or untilNextLevel changed
+     */
+    public int recomputeLevels() {
+        Object[] bounds = transactionTemplate.execute(status ->
+                session().createQuery("select min(p.id), max(p.id) from Player p", Object[].class).getSingleResult());
+        if (isNull(bounds) || isNull(bounds[0])) return 0;
+        long min = (Long) bounds[0];
+        long max = (Long) bounds[1];
+
+        ExecutorService workers = Executors.newFixedThreadPool(levelThreads);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (long from = min; from <= max; from += levelChunkSize) {
+                long start = from;
+                long end = Math.min(from + levelChunkSize - 1, max);
+                results.add(workers.submit(() -> transactionTemplate.execute(status -> {
+                    List<Progress> changed = recomputeRange(start, end);
+                    afterCommit(() -> setExperienceInIndexes(changed));
+                    return changed.size();
+                })));
+            }
+            int total = 0;
+            for (Future<Integer> result : results) total += result.get();
+            return total;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("level recomputation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("level recomputation failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the players in the range whose level or untilNextLevel was rewritten
+     */
+    private List<Progress> recomputeRange(long from, long to) {
+        List<Progress> changed = new ArrayList<>();
+        session().doWork(connection -> {
+            try (PreparedStatement select = connection.prepareStatement(LEVELS_SELECT_SQL);
+                 PreparedStatement update = connection.prepareStatement(LEVELS_UPDATE_SQL)) {
+                select.setLong(1, from);
+                select.setLong(2, to);
+                List<Progress> batch = new ArrayList<>();
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        int experience = rows.getInt(2);
+                        int level = calcLevel(experience);
+                        int untilNextLevel = calcNextLevel(level, experience);
+                        if (level == rows.getInt(3) && untilNextLevel == rows.getInt(4)) continue;
+
+                        batch.add(new Progress(rows.getLong(1), experience, level, untilNextLevel));
+                        addLevelUpdate(update, batch.get(batch.size() - 1));
+                        if (batch.size() == jdbcBatchSize) executeLevelBatch(update, batch, changed);
+                    }
+                }
+                if (!batch.isEmpty()) executeLevelBatch(update, batch, changed);
+            }
+        });
+        return changed;
+    }
+
+    /**
+     * Writes the level and untilNextLevel of the players, in JDBC batches.
+     */
+    private void writeLevels(List<Progress> players) {
+        if (players.isEmpty()) return;
+        session().doWork(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(LEVELS_UPDATE_SQL)) {
+                for (int i = 0; i < players.size(); i++) {
+                    addLevelUpdate(update, players.get(i));
+                    if ((i + 1) % jdbcBatchSize == 0 || i == players.size() - 1) update.executeBatch();
+                }
+            }
+        });
+    }
+
+    private static void addLevelUpdate(PreparedStatement update, Progress player) throws SQLException {
+        update.setInt(1, player.level);
+        update.setInt(2, player.untilNextLevel);
+        update.setLong(3, player.id);
+        update.setInt(4, player.experience);
+        update.addBatch();
+    }
+
+    private static void executeLevelBatch(PreparedStatement update, List<Progress> batch, List<Progress> changed)
+            throws SQLException {
+        int[] counts = update.executeBatch();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) changed.add(batch.get(i));
+        }
+        batch.clear();
+    }
+
+    private void setExperienceInIndexes(Collection<Progress> players) {
+        for (Progress player : players) {
+            indexes.forEach(index -> index.setExperience(player.id, player.experience, player.level, player.untilNextLevel));
+        }
+    }
+
+    private void putIntoIndexes(Collection<Player> players) {
+        for (Player player : players) {
+            indexes.forEach(index -> index.put(player));
+        }
+    }
+
+    private void removeFromIndexes(Collection<Long> ids) {
+        for (long id : ids) {
+            indexes.forEach(index -> index.remove(id));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void scroll(Query<T> query, Consumer<T> consumer) {
+        Session session = session();
+        try (ScrollableResults results = query
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .setFetchSize(SCROLL_FETCH_SIZE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            int count = 0;
+            while (results.next()) {
+                consumer.accept((T) results.get(0));
+                if (++count % SCROLL_FETCH_SIZE == 0) session.clear();
+            }
+        }
+    }
+
+    /**
+     * Runs the index update once the transaction is committed. Its sequence is taken just
+     * before the commit, while the transaction still holds the locks of the rows it wrote, so
+     * two writes of a player get sequences in their commit order. The updates then take turns
+     * by sequence, a rolled back transaction passing its turn, so the indexes see the writes
+     * in commit order and nothing has to be remembered per player.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            inTurn(commitSequence.incrementAndGet(), action);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            private long sequence;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                sequence = commitSequence.incrementAndGet();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // rolled back before the commit started: no sequence taken
+                if (sequence == 0) return;
+                inTurn(sequence, status == STATUS_COMMITTED ? action : null);
+            }
+        });
+    }
+
+    /**
+     * Waits until the transactions with the earlier sequences had their turn, then runs the
+     * action, if any, with indexLock held. Those transactions are past their commit already,
+     * so the wait is short.
+     */
+    private void inTurn(long sequence, Runnable action) {
+        boolean interrupted = false;
+        synchronized (indexLock) {
+            while (indexedSequence != sequence - 1) {
+                try {
+                    indexLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            try {
+                if (nonNull(action)) action.run();
+            } finally {
+                indexedSequence = sequence;
+                indexLock.notifyAll();
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
     public Integer calcLevel(Integer experience){
         if (isNull(experience) || (experience<0)){
             experience=0;
         }
-        return (int)(Math.sqrt(2500+200*experience)-50)/100;
+        return levelEngine.level(experience);
     }
 
     public Integer calcNextLevel(Integer level, Integer experience){
@@ -153,18 +740,21 @@ public class PlayerRepository{
         if (isNull(level) || (level<0)){
             level=0;
         }
-        return 50*(level+1)*(level+2)-experience;
+        return levelEngine.untilNextLevel(level, experience);
     }
 
+    @Transactional
     public Player save(Player player) {
-        try (Session session = sessionFactory.openSession()) {
-            Transaction transaction = session.beginTransaction();
+        try {
+            levelEngine.holdCurve();
             Integer level = calcLevel(player.getExperience());
             Integer untilNextLevel = calcNextLevel(level, player.getExperience());
             player.setLevel(level);
             player.setUntilNextLevel(untilNextLevel);
+            Session session = session();
             session.saveOrUpdate(player);
-            transaction.commit();
+            session.flush();
+            afterCommit(() -> putIntoIndexes(Collections.singletonList(player)));
             return player;
         } catch (Exception e) {
             e.printStackTrace();
@@ -172,36 +762,227 @@ public class PlayerRepository{
         }
     }
 
+    /**
+     * Inserts new players with plain JDBC batches, chunkSize players per transaction.
+     * Hibernate can't batch inserts of IDENTITY ids, JDBC can: the driver sends a batch as one
+     * multi-row insert (rewriteBatchedStatements) and returns all generated ids.
+     *
+     * @return per player, null when it was inserted (its id is set) or INSERT_FAILED when its
+     * chunk failed; the cause is logged, not returned, as it carries SQL and driver details
+     */
+    public List<String> saveAll(List<Player> players) {
+        List<String> errors = new ArrayList<>();
+        for (int from = 0; from < players.size(); from += chunkSize) {
+            List<Player> chunk = players.subList(from, Math.min(from + chunkSize, players.size()));
+            try {
+                transactionTemplate.execute(status -> {
+                    insertChunk(chunk);
+                    return null;
+                });
+                chunk.forEach(player -> errors.add(null));
+            } catch (Exception e) {
+                LOGGER.error("Failed to insert a chunk of {} players", chunk.size(), e);
+                chunk.forEach(player -> {
+                    player.setId(null);
+                    errors.add(INSERT_FAILED);
+                });
+            }
+        }
+        return errors;
+    }
+
+    private void insertChunk(List<Player> chunk) {
+        levelEngine.holdCurve();
+        session().doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                int batchStart = 0;
+                for (int i = 0; i < chunk.size(); i++) {
+                    Player player = chunk.get(i);
+                    Integer level = calcLevel(player.getExperience());
+                    player.setLevel(level);
+                    player.setUntilNextLevel(calcNextLevel(level, player.getExperience()));
+
+                    statement.setString(1, player.getName());
+                    statement.setString(2, player.getTitle());
+                    statement.setString(3, player.getRace().name());
+                    statement.setString(4, player.getProfession().name());
+                    statement.setTimestamp(5, new Timestamp(player.getBirthday().getTime()));
+                    statement.setBoolean(6, player.getBanned());
+                    statement.setInt(7, player.getExperience());
+                    statement.setInt(8, player.getLevel());
+                    statement.setInt(9, player.getUntilNextLevel());
+                    statement.addBatch();
+
+                    if (i - batchStart + 1 == jdbcBatchSize || i == chunk.size() - 1) {
+                        statement.executeBatch();
+                        try (ResultSet keys = statement.getGeneratedKeys()) {
+                            for (int j = batchStart; j <= i && keys.next(); j++) {
+                                chunk.get(j).setId(keys.getLong(1));
+                            }
+                        }
+                        batchStart = i + 1;
+                    }
+                }
+            }
+        });
+        afterCommit(() -> putIntoIndexes(chunk));
+    }
+
+    /**
+     * Recomputes the level of a changed player. A player managed by the current transaction is
+     * left to dirty checking, which writes only the changed columns; a detached one is reattached.
+     * The caller reads the player with a write lock (findByIdForUpdate), so that the player in
+     * memory is the committed row the indexes get, and holds the level curve
+     * (LevelEngine.holdCurve) before it does.
+     */
+    @Transactional
     public Player update(Player player) {
-        try (Session session = sessionFactory.openSession()) {
-            Transaction transaction = session.beginTransaction();
+        updateAll(Collections.singletonList(player));
+        return player;
+    }
+
+    /**
+     * update() for many players, with one index update after the commit.
+     */
+    @Transactional
+    public void updateAll(Collection<Player> players) {
+        levelEngine.holdCurve();
+        Session session = session();
+        for (Player player : players) {
             Integer level = calcLevel(player.getExperience());
-            Integer untilNextLevel = calcNextLevel(level, player.getExperience());
             player.setLevel(level);
-            player.setUntilNextLevel(untilNextLevel);
-            session.update(player);
-            transaction.commit();
-            return player;
+            player.setUntilNextLevel(calcNextLevel(level, player.getExperience()));
+            if (!session.contains(player)) session.update(player);
         }
+        afterCommit(() -> putIntoIndexes(players));
+    }
+
+    /**
+     * Reads the players with a write lock, to be changed while managed.
+     *
+     * @return the players by id; unknown ids are absent
+     */
+    @Transactional
+    public Map<Long, Player> findAllForUpdate(Collection<Long> ids) {
+        return session().createQuery("from Player as p where p.id in (:ids)", Player.class)
+                .setParameterList("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList().stream()
+                .collect(Collectors.toMap(Player::getId, Function.identity()));
     }
 
+    @Transactional(readOnly = true)
     public Optional<Player> findById(long id) {
-        try (Session session = sessionFactory.openSession()) {
-            Player player =  session.find(Player.class,id);
-            return Optional.ofNullable(player);
-        }
+        Player player = session().find(Player.class, id);
+        return Optional.ofNullable(player);
     }
 
-    public void delete(Player player) {
-            try (Session session = sessionFactory.openSession()) {
-                Transaction transaction = session.beginTransaction();
-                session.remove(player);
-                transaction.commit();
-            }
+    /**
+     * Reads the player with a write lock, so no other writer changes it before the transaction
+     * ends.
+     */
+    @Transactional
+    public Optional<Player> findByIdForUpdate(long id) {
+        Player player = session().find(Player.class, id, LockModeType.PESSIMISTIC_WRITE);
+        return Optional.ofNullable(player);
+    }
+
+    /**
+     * Read-only projection of the player, no entity is loaded or tracked.
+     *
+     * @return null when there is no such player
+     */
+    @Transactional(readOnly = true)
+    public PlayerInfo findInfoById(long id) {
+        return session().createQuery(PlayerQueryShapes.SELECT_INFO + "from Player as p where p.id = :id", PlayerInfo.class)
+                .setParameter("id", id)
+                .uniqueResult();
+    }
+
+    /**
+     * @return the players with the given ids in one query, in the order of the ids;
+     * unknown ids are skipped
+     */
+    @Transactional(readOnly = true)
+    public List<PlayerInfo> findAllById(List<Long> ids) {
+        Map<Long, PlayerInfo> byId = findMapById(ids);
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the players with the given ids by id, read with one projection query;
+     * unknown ids are absent
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, PlayerInfo> findMapById(Collection<Long> ids) {
+        if (ids.isEmpty()) return new HashMap<>();
+        return session().createQuery(PlayerQueryShapes.SELECT_INFO + "from Player as p where p.id in (:ids)", PlayerInfo.class)
+                .setParameterList("ids", ids)
+                .getResultStream()
+                .collect(Collectors.toMap(PlayerInfo::getId, Function.identity()));
+    }
+
+    /**
+     * Deletes the player with one statement, without loading it.
+     *
+     * @return false when there is no such player
+     */
+    @Transactional
+    public boolean deleteById(long id) {
+        int deleted = session().createQuery("delete from Player p where p.id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        if (deleted > 0) afterCommit(() -> removeFromIndexes(Collections.singletonList(id)));
+        return deleted > 0;
+    }
+
+    /**
+     * Deletes every player matching the filter, deleteChunkSize players per transaction, so no
+     * transaction holds locks on many rows for long. The ids of a chunk are selected with a
+     * write lock, and the delete repeats the filter.
+     *
+     * @return number of deleted players
+     */
+    public int deleteAll(PlayerFilter filter) {
+        int total = 0;
+        long[] lastId = {0};
+        int[] chunk = {0};
+        while (true) {
+            Integer deleted = transactionTemplate.execute(status -> {
+                Query<Long> select = session().createQuery("select p.id from Player as p " + filter.whereClause() +
+                        "and p.id > :lastId order by p.id asc", Long.class);
+                filter.bind(select);
+                select.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+                List<Long> ids = select.setParameter("lastId", lastId[0]).setMaxResults(deleteChunkSize).getResultList();
+                if (ids.isEmpty()) return null;
+                lastId[0] = ids.get(ids.size() - 1);
+                Query<?> delete = session().createQuery("delete from Player p " + filter.whereClause() + "and p.id in (:ids)");
+                filter.bind(delete);
+                int count = delete.setParameterList("ids", ids).executeUpdate();
+                afterBulkCommit(count, ids.size(), () -> removeFromIndexes(ids));
+                chunk[0] = ids.size();
+                return count;
+            });
+            if (isNull(deleted)) return total;
+            total += deleted;
+            if (chunk[0] < deleteChunkSize) return total;
         }
+    }
+
+    /**
+     * Experience, level and untilNextLevel of one player, as written by a bulk update.
+     */
+    private static class Progress {
+        final long id;
+        final int experience;
+        final int level;
+        final int untilNextLevel;
 
-/*    @PreDestroy
-    public void beforeStop() {
-        sessionFactory.close();
-    }*/
-}
\ No newline at end of file
+        Progress(long id, int experience, int level, int untilNextLevel) {
+            this.id = id;
+            this.experience = experience;
+            this.level = level;
+            this.untilNextLevel = untilNextLevel;
+        }
+    }
+}
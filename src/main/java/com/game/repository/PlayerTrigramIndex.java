@@ -0,0 +1,173 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Trigram inverted index over player names and titles for the substring filters.
+ * Text is folded before indexing: compatibility decomposition, diacritics and strokes
+ * stripped, Unicode case folding, and the letters utf8mb4_unicode_ci expands (ß, æ, œ, þ)
+ * written out. Letters the collation tells apart may fold together, which only adds
+ * candidates, so these are a superset of what "like '%x%'" matches under H2's default
+ * collation and MySQL's utf8mb4_unicode_ci: the like condition stays in the query and does
+ * the exact check. Another collation may equate letters this folding keeps apart.
+ */
+@Component
+public class PlayerTrigramIndex implements PlayerIndex {
+    // letters with a stroke or bar have no decomposition, but the collation weighs them as the base letter
+    private static final String STROKED = "øđðłħŧıƀƶ";
+    private static final String UNSTROKED = "oddlhtibz";
+
+    private final Field names = new Field();
+    private final Field titles = new Field();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            titles.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Player player) {
+        long id = player.getId();
+        lock.writeLock().lock();
+        try {
+            names.put(id, player.getName());
+            titles.put(id, player.getTitle());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            names.remove(id);
+            titles.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of the players whose name and title may contain the given substrings,
+     * or null when neither substring is long enough to use the index
+     */
+    public Roaring64Bitmap match(String name, String title) {
+        lock.readLock().lock();
+        try {
+            Roaring64Bitmap byName = names.match(name);
+            Roaring64Bitmap byTitle = titles.match(title);
+            if (isNull(byName)) return byTitle;
+            if (isNull(byTitle)) return byName;
+            byName.and(byTitle);
+            return byName;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String fold(String text) {
+        String stripped = Normalizer.normalize(text, Normalizer.Form.NFKD).replaceAll("\\p{M}", "");
+        // the final sigma depends on the context, which a substring doesn't have
+        String folded = stripped.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT).replace('ς', 'σ');
+        StringBuilder result = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            int stroke = STROKED.indexOf(c);
+            if (stroke >= 0) {
+                result.append(UNSTROKED.charAt(stroke));
+            } else if (c == 'æ') {
+                result.append("ae");
+            } else if (c == 'œ') {
+                result.append("oe");
+            } else if (c == 'þ') {
+                result.append("th");
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Trigrams of the folded text, three code points packed into a long each.
+     */
+    static long[] trigrams(String text) {
+        int[] codePoints = fold(text).codePoints().toArray();
+        if (codePoints.length < 3) return new long[0];
+        long[] result = new long[codePoints.length - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((long) codePoints[i] << 42) | ((long) codePoints[i + 1] << 21) | codePoints[i + 2];
+        }
+        return result;
+    }
+
+    private static class Field {
+        private final Map<Long, Roaring64Bitmap> postings = new HashMap<>();
+        private final Map<Long, String> values = new HashMap<>();
+
+        void clear() {
+            postings.clear();
+            values.clear();
+        }
+
+        void put(long id, String value) {
+            remove(id);
+            if (isNull(value)) return;
+            values.put(id, value);
+            for (long trigram : trigrams(value)) {
+                postings.computeIfAbsent(trigram, key -> new Roaring64Bitmap()).addLong(id);
+            }
+        }
+
+        void remove(long id) {
+            String value = values.remove(id);
+            if (isNull(value)) return;
+            for (long trigram : trigrams(value)) {
+                Roaring64Bitmap ids = postings.get(trigram);
+                if (nonNull(ids)) {
+                    ids.removeLong(id);
+                    if (ids.isEmpty()) postings.remove(trigram);
+                }
+            }
+        }
+
+        Roaring64Bitmap match(String substring) {
+            // like wildcards and escapes inside the substring break the trigram sequence
+            if (isNull(substring) || substring.indexOf('%') >= 0 || substring.indexOf('_') >= 0
+                    || substring.indexOf('\\') >= 0) return null;
+            long[] trigrams = trigrams(substring);
+            if (trigrams.length == 0) return null;
+            Roaring64Bitmap result = null;
+            for (long trigram : trigrams) {
+                Roaring64Bitmap ids = postings.get(trigram);
+                if (isNull(ids)) return new Roaring64Bitmap();
+                if (isNull(result)) {
+                    result = ids.clone();
+                } else {
+                    result.and(ids);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.game.repository;
+
+/**
+ * Level L is reached at step * L * (L + 1) experience. Step 50 is the original curve:
+ * level = (sqrt(2500 + 200 * experience) - 50) / 100.
+ */
+public class QuadraticLevelCurve implements LevelCurve {
+    private final int step;
+
+    public QuadraticLevelCurve(int step) {
+        if (step <= 0) throw new IllegalArgumentException("step must be positive");
+        this.step = step;
+    }
+
+    public int getStep() {
+        return step;
+    }
+
+    @Override
+    public long threshold(int level) {
+        return (long) step * level * (level + 1);
+    }
+
+    @Override
+    public String levelHql(String experience) {
+        long s = step;
+        return "floor((sqrt(" + s * s + " + " + 4 * s + " * " + experience + ") - " + s + ") / " + 2 * s + ")";
+    }
+
+    @Override
+    public String thresholdHql(String level) {
+        return step + " * (" + level + ") * (" + level + " + 1)";
+    }
+}
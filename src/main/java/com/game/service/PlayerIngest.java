@@ -0,0 +1,328 @@
+package com.game.service;
+
+import com.game.controller.PlayerEvent;
+import com.game.controller.PlayerIngestMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Ingest of game-server events in partitions by player id. Each partition has a queue and one
+ * worker thread, so the events of a player are applied in order by a single writer. A worker
+ * takes up to groupSize queued events and applies them in one transaction; when the group
+ * fails, its events are applied one by one, and an event still failing after ATTEMPTS tries is
+ * logged, counted as failed and kept in the partition's dead letters, the last
+ * deadLetterCapacity of them.
+ * A partition holds at most queueCapacity events. A batch takes room in every partition it
+ * touches at once, so it is either queued whole or refused.
+ * submit() returns once every event of the batch is committed or dead-lettered, so an
+ * acknowledged event is never in memory only; a crash loses just the batches still waiting.
+ */
+@Component
+public class PlayerIngest implements DisposableBean {
+    public enum Submission {SETTLED, FULL, TOO_LARGE, CLOSED}
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlayerIngest.class);
+    private static final int ATTEMPTS = 3;
+    private static final long POLL_MS = 100;
+
+    private final Function<List<PlayerEvent>, Integer> applier;
+    private final Partition[] partitions;
+    private final int queueCapacity;
+    private final int groupSize;
+    private final int deadLetterCapacity;
+    // submits hold the read lock, so none is queueing once destroy() has the write lock
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean running = true;
+
+    @Autowired
+    public PlayerIngest(PlayerService playerService, Environment env) {
+        this(playerService::applyEvents,
+                env.getProperty("players.ingest.partitions", Integer.class, 4),
+                env.getProperty("players.ingest.queueCapacity", Integer.class, 10000),
+                env.getProperty("players.ingest.groupSize", Integer.class, 500),
+                env.getProperty("players.ingest.deadLetters", Integer.class, 1000));
+    }
+
+    /**
+     * @param applier applies events in one transaction and returns how many had a player
+     */
+    PlayerIngest(Function<List<PlayerEvent>, Integer> applier, int partitionCount, int queueCapacity, int groupSize,
+                 int deadLetterCapacity) {
+        this.applier = applier;
+        this.queueCapacity = queueCapacity;
+        this.groupSize = groupSize;
+        this.deadLetterCapacity = deadLetterCapacity;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            Partition partition = new Partition(queueCapacity);
+            partitions[i] = partition;
+            partition.worker = new Thread(() -> work(partition), "ingest-" + i);
+            partition.worker.setDaemon(true);
+            partition.worker.start();
+        }
+    }
+
+    /**
+     * @return SETTLED once every event is committed or dead-lettered, or with nothing queued:
+     * FULL when a partition has no room for its events now, TOO_LARGE when a partition's events
+     * would not fit even into its empty queue, CLOSED after destroy()
+     */
+    public Submission submit(List<PlayerEvent> events) {
+        int[] counts = new int[partitions.length];
+        for (PlayerEvent event : events) counts[partition(event.id)]++;
+        for (int count : counts) {
+            if (count > queueCapacity) return Submission.TOO_LARGE;
+        }
+
+        Batch batch = new Batch(events.size());
+        closeLock.readLock().lock();
+        try {
+            if (!running) return Submission.CLOSED;
+            for (int i = 0; i < partitions.length; i++) {
+                if (counts[i] > 0 && !partitions[i].room.tryAcquire(counts[i])) {
+                    for (int j = 0; j < i; j++) partitions[j].room.release(counts[j]);
+                    return Submission.FULL;
+                }
+            }
+
+            long now = System.nanoTime();
+            for (PlayerEvent event : events) {
+                Partition partition = partitions[partition(event.id)];
+                partition.queue.add(new Queued(event, batch, now));
+                partition.accepted.increment();
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        // the workers settle every queued event, destroy() included
+        batch.await();
+        return Submission.SETTLED;
+    }
+
+    public List<PlayerIngestMetrics> getMetrics() {
+        List<PlayerIngestMetrics> result = new ArrayList<>();
+        long now = System.nanoTime();
+        for (int i = 0; i < partitions.length; i++) {
+            Partition partition = partitions[i];
+            Queued oldest = partition.queue.peek();
+            PlayerIngestMetrics metrics = new PlayerIngestMetrics();
+            metrics.partition = i;
+            metrics.queued = partition.queue.size();
+            metrics.lagMs = isNull(oldest) ? 0 : TimeUnit.NANOSECONDS.toMillis(now - oldest.queuedNanos);
+            metrics.eventsPerSecond = partition.lastSecondCount(TimeUnit.NANOSECONDS.toSeconds(now));
+            metrics.accepted = partition.accepted.sum();
+            metrics.applied = partition.applied.sum();
+            metrics.skipped = partition.skipped.sum();
+            metrics.failed = partition.failed.sum();
+            metrics.transactions = partition.transactions.sum();
+            metrics.deadLetters = partition.deadLetters();
+            result.add(metrics);
+        }
+        return result;
+    }
+
+    /**
+     * Refuses new batches and waits until the workers have applied the queued ones.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        closeLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        for (Partition partition : partitions) partition.worker.join();
+    }
+
+    private int partition(long id) {
+        return (int) Math.floorMod(id, (long) partitions.length);
+    }
+
+    private void work(Partition partition) {
+        List<Queued> group = new ArrayList<>(groupSize);
+        boolean interrupted = false;
+        while (!interrupted && (running || !partition.queue.isEmpty())) {
+            try {
+                Queued first = partition.queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (isNull(first)) continue;
+                group.add(first);
+            } catch (InterruptedException e) {
+                break;
+            }
+            partition.queue.drainTo(group, groupSize - 1);
+            interrupted = !apply(partition, group);
+            partition.count(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime()), group.size());
+            // the room is given back once the events are applied, so it bounds them in progress too
+            partition.room.release(group.size());
+            group.clear();
+        }
+        // only an interrupt leaves events behind; no one applies them now, so their submitters are released
+        partition.queue.drainTo(group);
+        group.forEach(queued -> deadLetter(partition, queued));
+    }
+
+    /**
+     * @return false when interrupted; the events not applied then are dead-lettered
+     */
+    private boolean apply(Partition partition, List<Queued> group) {
+        if (group.size() > 1) {
+            try {
+                applied(partition, group.size(),
+                        applier.apply(group.stream().map(queued -> queued.event).collect(Collectors.toList())));
+                group.forEach(queued -> queued.batch.settle());
+                return true;
+            } catch (RuntimeException e) {
+                // the group is rolled back whole; one bad event must not take the others with it
+            }
+        }
+        for (int i = 0; i < group.size(); i++) {
+            if (!applyAlone(partition, group.get(i))) {
+                group.subList(i, group.size()).forEach(queued -> deadLetter(partition, queued));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false, with the event not applied, when interrupted
+     */
+    private boolean applyAlone(Partition partition, Queued queued) {
+        PlayerEvent event = queued.event;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                applied(partition, 1, applier.apply(Collections.singletonList(event)));
+                queued.batch.settle();
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt == ATTEMPTS) {
+                    LOGGER.warn("Dropped {} event of player {} after {} attempts", event.type, event.id, ATTEMPTS, e);
+                    deadLetter(partition, queued);
+                    return true;
+                }
+            }
+            try {
+                Thread.sleep(attempt * POLL_MS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+    }
+
+    private void applied(Partition partition, int events, int applied) {
+        partition.applied.add(applied);
+        partition.skipped.add(events - applied);
+        partition.transactions.increment();
+    }
+
+    private void deadLetter(Partition partition, Queued queued) {
+        partition.failed.increment();
+        synchronized (partition.deadLetters) {
+            partition.deadLetters.addLast(queued.event);
+            if (partition.deadLetters.size() > deadLetterCapacity) partition.deadLetters.removeFirst();
+        }
+        queued.batch.settle();
+    }
+
+    private static class Queued {
+        final PlayerEvent event;
+        final Batch batch;
+        final long queuedNanos;
+
+        Queued(PlayerEvent event, Batch batch, long queuedNanos) {
+            this.event = event;
+            this.batch = batch;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    /**
+     * Events of one submit() not committed or dead-lettered yet.
+     */
+    private static class Batch {
+        private int unsettled;
+
+        Batch(int size) {
+            this.unsettled = size;
+        }
+
+        synchronized void settle() {
+            if (--unsettled == 0) notifyAll();
+        }
+
+        synchronized void await() {
+            boolean interrupted = false;
+            while (unsettled > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Partition {
+        final BlockingQueue<Queued> queue = new LinkedBlockingQueue<>();
+        final Semaphore room;
+        final LongAdder accepted = new LongAdder();
+        final LongAdder applied = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder transactions = new LongAdder();
+        // the last dropped events, oldest first; guarded by itself
+        final Deque<PlayerEvent> deadLetters = new ArrayDeque<>();
+        Thread worker;
+        // events taken in the current and the previous second, written by the worker only
+        volatile long second;
+        volatile long secondCount;
+        volatile long previousSecondCount;
+
+        Partition(int capacity) {
+            this.room = new Semaphore(capacity);
+        }
+
+        void count(long now, int events) {
+            if (now != second) {
+                previousSecondCount = now == second + 1 ? secondCount : 0;
+                secondCount = 0;
+                second = now;
+            }
+            secondCount += events;
+        }
+
+        List<PlayerEvent> deadLetters() {
+            synchronized (deadLetters) {
+                return new ArrayList<>(deadLetters);
+            }
+        }
+
+        long lastSecondCount(long now) {
+            if (now == second) return previousSecondCount;
+            return now == second + 1 ? secondCount : 0;
+        }
+    }
+}
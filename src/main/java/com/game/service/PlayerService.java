@@ -1,16 +1,38 @@
 package com.game.service;
 
+import com.game.controller.PlayerEvent;
+import com.game.controller.PlayerFields;
 import com.game.controller.PlayerInfo;
+import com.game.controller.PlayerOrder;
+import com.game.controller.PlayerSuggestion;
 import com.game.entity.Player;
 import com.game.entity.Profession;
 import com.game.entity.Race;
+import com.game.repository.ExperienceBuffer;
+import com.game.repository.LevelCurve;
+import com.game.repository.LevelEngine;
+import com.game.repository.PlayerCache;
+import com.game.repository.PlayerCursor;
+import com.game.repository.PlayerFilter;
+import com.game.repository.PlayerLeaderboard;
+import com.game.repository.PlayerNameTrie;
+import com.game.repository.PlayerPage;
+import com.game.repository.PlayerQueryCache;
 import com.game.repository.PlayerRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 
 import static java.util.Objects.isNull;
@@ -19,28 +41,127 @@ import static java.util.Objects.nonNull;
 @Service
 public class PlayerService {
     private final PlayerRepository playerRepository;
+    private final PlayerNameTrie playerNameTrie;
+    private final PlayerLeaderboard playerLeaderboard;
+    private final PlayerCache playerCache;
+    private final PlayerQueryCache playerQueryCache;
+    private final LevelEngine levelEngine;
+    private final ExperienceBuffer experienceBuffer;
+    private final int maxBatchSize;
+    // identical concurrent queries share one execution; the generation keeps a query started
+    // before a write from answering callers that came after it
+    private final SingleFlight<List<Object>, List<PlayerInfo>> allFlight;
+    private final SingleFlight<List<Object>, Integer> countFlight;
 
-    public PlayerService(@Autowired PlayerRepository playerRepository) {
+    public PlayerService(@Autowired PlayerRepository playerRepository,
+                         @Autowired PlayerNameTrie playerNameTrie,
+                         @Autowired PlayerLeaderboard playerLeaderboard,
+                         @Autowired PlayerCache playerCache,
+                         @Autowired PlayerQueryCache playerQueryCache,
+                         @Autowired LevelEngine levelEngine,
+                         @Autowired ExperienceBuffer experienceBuffer,
+                         @Autowired Environment env) {
         this.playerRepository = playerRepository;
+        this.playerNameTrie = playerNameTrie;
+        this.playerLeaderboard = playerLeaderboard;
+        this.playerCache = playerCache;
+        this.playerQueryCache = playerQueryCache;
+        this.levelEngine = levelEngine;
+        this.experienceBuffer = experienceBuffer;
+        this.maxBatchSize = env.getProperty("players.batch.maxItems", Integer.class, 10000);
+        long flightTimeoutMs = env.getProperty("players.singleFlight.timeoutMs", Long.class, 2000L);
+        this.allFlight = new SingleFlight<>(flightTimeoutMs);
+        this.countFlight = new SingleFlight<>(flightTimeoutMs);
     }
 
-    public List<Player> getAll(String playerName, String playerTitle, Long after, Long before,
-                               Integer minExperience, Integer maxExperience, Integer minLevel, Integer maxLevel,
-                               String playerRace, String playerProfession, String banned, int pageNumber, int pageSize, String fieldOrder) {
-        return playerRepository.getAll(playerName, playerTitle, new Date(after), new Date(before),
-                minExperience, maxExperience, minLevel, maxLevel, playerRace, playerProfession, banned,
-                pageNumber, pageSize, fieldOrder);
+    /**
+     * Lists, counts, pages, exports and the top are built from the table, so buffered experience
+     * gains show up in them with the next flush of the buffer; only getById and getByIds add them.
+     */
+    public List<PlayerInfo> getAll(PlayerFilter filter, int pageNumber, int pageSize, PlayerOrder order, PlayerFields fields) {
+        return playerQueryCache.getAll(filter, pageNumber, pageSize, order, fields,
+                () -> allFlight.execute(Arrays.asList(playerQueryCache.generation(), filter, pageNumber, pageSize, order, fields),
+                        () -> playerRepository.getAll(filter, pageNumber, pageSize, order, fields)));
     }
 
-    public Player getById(long id) {
-        return playerRepository.findById(id).orElse(null);
+    public List<PlayerInfo> getAfter(PlayerFilter filter, PlayerOrder order, PlayerCursor cursor, int pageSize, PlayerFields fields) {
+        return playerRepository.getAfter(filter, order, cursor, pageSize, fields);
     }
 
-    public Integer getAllCount(String playerName, String playerTitle, Long after, Long before,
-                               Integer minExperience, Integer maxExperience, Integer minLevel, Integer maxLevel,
-                               String playerRace, String playerProfession, String playerBanned) {
-        return playerRepository.getAllCount(playerName, playerTitle, new Date(after), new Date(before),
-                minExperience, maxExperience, minLevel, maxLevel, playerRace, playerProfession, playerBanned);
+    /**
+     * @return the player with the experience gains not written yet
+     */
+    public PlayerInfo getById(long id) {
+        return experienceBuffer.read(id, () -> playerCache.get(id, playerRepository::findInfoById));
+    }
+
+    /**
+     * Buffers the gain; it is written with the next flush of the buffer.
+     *
+     * @return the player with the gain, or null when there is none
+     */
+    public PlayerInfo addExperience(long id, int amount) {
+        if (isNull(playerCache.get(id, playerRepository::findInfoById))) return null;
+        experienceBuffer.add(id, amount);
+        return getById(id);
+    }
+
+    /**
+     * @return the players with the given ids by id, with the experience gains not written yet;
+     * unknown ids are absent
+     */
+    public Map<Long, PlayerInfo> getByIds(List<Long> ids) {
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        return experienceBuffer.readAll(unique, () -> playerCache.getAll(unique, playerRepository::findMapById));
+    }
+
+    public Integer getAllCount(PlayerFilter filter) {
+        return playerQueryCache.getCount(filter,
+                () -> countFlight.execute(Arrays.asList(playerQueryCache.generation(), filter),
+                        () -> playerRepository.getAllCount(filter)));
+    }
+
+    public void export(PlayerFilter filter, Consumer<PlayerInfo> consumer) {
+        playerRepository.export(filter, consumer);
+    }
+
+    public int addExperience(PlayerFilter filter, int amount) {
+        return playerRepository.addExperience(filter, amount);
+    }
+
+    /**
+     * Switches to the curve and brings the stored levels to it. Changes are serialized, so a
+     * recomputation never runs against a curve replaced halfway through it, and writes of
+     * levels wait for the recomputation.
+     *
+     * @return number of players whose level or untilNextLevel changed
+     */
+    public int changeLevelCurve(LevelCurve curve) {
+        return levelEngine.changeCurve(curve, playerRepository::recomputeLevels);
+    }
+
+    public int setBanned(PlayerFilter filter, boolean banned) {
+        return playerRepository.setBanned(filter, banned);
+    }
+
+    public PlayerPage getPage(PlayerFilter filter, int pageNumber, int pageSize, PlayerOrder order) {
+        return playerQueryCache.getPage(filter, pageNumber, pageSize, order,
+                () -> playerRepository.getPage(filter, pageNumber, pageSize, order));
+    }
+
+    public List<PlayerSuggestion> suggest(String prefix, int limit) {
+        return playerNameTrie.suggest(prefix, limit);
+    }
+
+    /**
+     * @return the top players with the experience written so far, see getAll
+     */
+    public List<PlayerInfo> getTop(int n) {
+        return playerRepository.findAllById(playerLeaderboard.top(n));
+    }
+
+    public Integer getRank(long id) {
+        return playerLeaderboard.rank(id);
     }
 
     public Player createPlayer(String name, String title, Race race, Profession profession, long birthday, boolean banned, Integer experience) {
@@ -56,8 +177,26 @@ public class PlayerService {
         return playerRepository.save(player);
     }
 
+    /**
+     * @return per player, null when it was created or why it wasn't
+     */
+    public List<String> createPlayers(List<Player> players) {
+        return playerRepository.saveAll(players);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Reads the player once, with a write lock, and changes it while it is managed, so the
+     * commit writes only the changed columns: one select and at most one update. The lock keeps
+     * buffered gains and events from changing the player between the read and the commit.
+     */
+    @Transactional
     public Player updatePlayer(long id, PlayerInfo info) {
-        Player player = playerRepository.findById(id).orElse(null);
+        levelEngine.holdCurve();
+        Player player = playerRepository.findByIdForUpdate(id).orElse(null);
         if (isNull(player)) {
             return null;
         }
@@ -102,12 +241,50 @@ public class PlayerService {
         return player;
     }
 
-    public Player delete(long id) {
-        Player player = playerRepository.findById(id).orElse(null);
-        if (isNull(player)) {
-            return null;
+    /**
+     * Applies the events in order in one transaction. Their players are read once, with a write
+     * lock, and changed while managed, so the commit writes each changed player once. Events of
+     * players that don't exist are skipped.
+     *
+     * @return number of events applied
+     */
+    @Transactional
+    public int applyEvents(List<PlayerEvent> events) {
+        levelEngine.holdCurve();
+        Map<Long, Player> players = playerRepository.findAllForUpdate(
+                events.stream().map(event -> event.id).collect(Collectors.toSet()));
+        Set<Player> changed = new LinkedHashSet<>();
+        int applied = 0;
+        for (PlayerEvent event : events) {
+            Player player = players.get(event.id);
+            if (isNull(player)) continue;
+
+            switch (event.type) {
+                case EXPERIENCE:
+                    player.setExperience((int) Math.min((long) player.getExperience() + event.amount, 10000000));
+                    break;
+                case TITLE:
+                    player.setTitle(event.title);
+                    break;
+                case BAN:
+                    player.setBanned(true);
+                    break;
+                case UNBAN:
+                    player.setBanned(false);
+                    break;
+            }
+            changed.add(player);
+            applied++;
         }
-        playerRepository.delete(player);
-        return player;
+        playerRepository.updateAll(changed);
+        return applied;
+    }
+
+    public boolean delete(long id) {
+        return playerRepository.deleteById(id);
+    }
+
+    public int deleteAll(PlayerFilter filter) {
+        return playerRepository.deleteAll(filter);
     }
 }
@@ -0,0 +1,52 @@
+package com.game.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller (the leader) runs the
+ * supplier, the others wait up to timeoutMs for its result. When the leader fails, returns
+ * null or doesn't finish in time, a waiting caller runs the supplier itself.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final long timeoutMs;
+
+    public SingleFlight(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public V execute(K key, Supplier<V> supplier) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> leader = calls.putIfAbsent(key, call);
+        if (isNull(leader)) {
+            try {
+                V value = supplier.get();
+                call.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                call.completeExceptionally(e);
+                throw e;
+            } finally {
+                calls.remove(key, call);
+            }
+        }
+
+        try {
+            V value = leader.get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (!isNull(value)) return value;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // the leader failed or is too slow, so this caller runs the supplier itself
+        }
+        return supplier.get();
+    }
+}
@@ -0,0 +1,114 @@
+package com.game.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.game.config.WebConfig;
+import com.game.controller.PlayerInfo;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding of a page of players in each response format, with and without gzip: CPU per
+ * page here, and the bytes per page printed by main before the run.
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.game.benchmark.PlayerFormatBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerFormatBenchmark {
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private List<PlayerInfo> players;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        players = players();
+        writer = writer(format);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return encode(writer, players, gzip);
+    }
+
+    private static byte[] encode(ObjectWriter writer, List<PlayerInfo> players, boolean gzip) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes) : bytes) {
+            writer.writeValue(out, players);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ObjectWriter writer(String format) {
+        Jackson2ObjectMapperBuilder builder = format.equals("smile") ? Jackson2ObjectMapperBuilder.smile()
+                : format.equals("cbor") ? Jackson2ObjectMapperBuilder.cbor()
+                : Jackson2ObjectMapperBuilder.json();
+        return WebConfig.configure(builder.build()).writer();
+    }
+
+    private static List<PlayerInfo> players() {
+        List<PlayerInfo> result = new ArrayList<>();
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            PlayerInfo player = new PlayerInfo();
+            player.id = (long) i + 1;
+            player.name = "Игрок" + i;
+            player.title = "Титул игрока номер " + i;
+            player.race = Race.values()[i % Race.values().length];
+            player.profession = Profession.values()[i % Profession.values().length];
+            player.birthday = 988059600000L + i * 86400000L;
+            player.banned = i % 2 == 0;
+            player.experience = i * 37;
+            player.level = (int) (Math.sqrt(2500 + 200 * player.experience) - 50) / 100;
+            player.untilNextLevel = 50 * (player.level + 1) * (player.level + 2) - player.experience;
+            result.add(player);
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        List<PlayerInfo> players = players();
+        for (String format : new String[]{"json", "smile", "cbor"}) {
+            ObjectWriter writer = writer(format);
+            System.out.printf("%-6s %8d bytes, gzip %8d bytes per %d players%n", format,
+                    encode(writer, players, false).length, encode(writer, players, true).length, PAGE_SIZE);
+        }
+        new Runner(new OptionsBuilder()
+                .include(PlayerFormatBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
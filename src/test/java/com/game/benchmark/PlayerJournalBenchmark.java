@@ -0,0 +1,115 @@
+package com.game.benchmark;
+
+import com.game.repository.PlayerJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Appends to PlayerJournal from four threads under each fsync policy, and the replay of a
+ * journal of one 1 GB segment (about 44.7 million records over 100000 players).
+ * The journal lives in java.io.tmpdir: run it there on the disk the service would use.
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.game.benchmark.PlayerJournalBenchmark
+ */
+@Fork(1)
+public class PlayerJournalBenchmark {
+    private static final int PLAYERS = 100000;
+
+    @State(Scope.Benchmark)
+    public static class Appends {
+        @Param({"WRITE", "GROUP", "INTERVAL"})
+        public PlayerJournal.Fsync fsync;
+
+        Path dir;
+        PlayerJournal journal;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("journal-bench");
+            journal = new PlayerJournal(dir, 64 << 20, fsync, 10);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.destroy();
+            delete(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Replay {
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("journal-bench");
+            int segmentSize = 1 << 30;
+            PlayerJournal journal = new PlayerJournal(dir, segmentSize, PlayerJournal.Fsync.INTERVAL, 1000);
+            // the empty snapshot takes one slot, and one more append would start a new segment
+            for (int i = 0; i < segmentSize / PlayerJournal.RECORD_SIZE - 1; i++) {
+                journal.append(i % PLAYERS + 1, 1);
+            }
+            journal.destroy();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Threads(4)
+    public void append(Appends state) {
+        state.journal.append(ThreadLocalRandom.current().nextInt(PLAYERS) + 1, 10);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Map<Long, Long> replay(Replay state) throws IOException {
+        return PlayerJournal.read(state.dir);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PlayerJournalBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,128 @@
+package com.game.benchmark;
+
+import com.game.config.AppConfig;
+import com.game.config.WebConfig;
+import com.game.controller.PlayerInfo;
+import com.game.controller.utils.TemporaryJournalDir;
+import com.game.entity.Player;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import com.game.repository.PlayerRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Page of players read as managed entities and converted to PlayerInfo, the old read path,
+ * against the same page read as a PlayerInfo projection.
+ * Run with the GC profiler for the allocation per page:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.game.benchmark.PlayerReadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerReadBenchmark {
+    private static final int PLAYERS = 20000;
+    private static final String PAGE = "from Player as p where p.id > :after order by p.id asc";
+    private static final String PROJECTION = "select new com.game.controller.PlayerInfo(p.id, p.name, p.title, " +
+            "p.race, p.profession, p.birthday, p.banned, p.experience, p.level, p.untilNextLevel) " + PAGE;
+
+    @Param({"10", "1000"})
+    public int pageSize;
+
+    private AnnotationConfigWebApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.getEnvironment().setActiveProfiles("dev");
+        new TemporaryJournalDir().initialize(context);
+        context.register(AppConfig.class, WebConfig.class);
+        context.refresh();
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(new Player("Игрок" + i, "Титул " + i, Race.values()[i % Race.values().length],
+                    Profession.values()[i % Profession.values().length], new Date(988059600000L), i % 2 == 0, i * 37));
+        }
+        context.getBean(PlayerRepository.class).saveAll(players);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<PlayerInfo> entities() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            List<PlayerInfo> result = entityManager.createQuery(PAGE, Player.class)
+                    .setParameter("after", 100L)
+                    .setMaxResults(pageSize)
+                    .getResultList()
+                    .stream()
+                    .map(PlayerInfo::of)
+                    .collect(Collectors.toList());
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public List<PlayerInfo> projection() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            List<PlayerInfo> result = entityManager.createQuery(PROJECTION, PlayerInfo.class)
+                    .setParameter("after", 100L)
+                    .setMaxResults(pageSize)
+                    .getResultList();
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PlayerReadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
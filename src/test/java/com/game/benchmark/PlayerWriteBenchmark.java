@@ -0,0 +1,106 @@
+package com.game.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.game.config.WebConfig;
+import com.game.controller.PlayerFields;
+import com.game.controller.PlayerInfo;
+import com.game.controller.PlayerInfoSerializer;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A page of players written as JSON the old way, a List through the reflective bean
+ * serializer, against PlayerInfoSerializer writing into one generator. Both write into a
+ * sink that keeps nothing, so the GC profiler shows the allocation of the writing alone.
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.game.benchmark.PlayerWriteBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerWriteBenchmark {
+    private static final OutputStream SINK = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Param({"10", "1000"})
+    public int pageSize;
+
+    private List<PlayerInfo> players;
+    private ObjectWriter beanWriter;
+    private JsonFactory factory;
+
+    @Setup
+    public void setUp() {
+        players = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            players.add(new PlayerInfo((long) i + 1, "Игрок" + i, "Титул игрока номер " + i,
+                    Race.values()[i % Race.values().length], Profession.values()[i % Profession.values().length],
+                    new Date(988059600000L + i * 86400000L), i % 2 == 0, i * 37, i / 10, 100));
+        }
+        beanWriter = Jackson2ObjectMapperBuilder.json().build()
+                .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .writer();
+        factory = WebConfig.configure(Jackson2ObjectMapperBuilder.json().build()).getFactory();
+    }
+
+    @Benchmark
+    public void beanSerializer() throws IOException {
+        beanWriter.writeValue(SINK, players);
+    }
+
+    @Benchmark
+    public void streaming() throws IOException {
+        try (JsonGenerator generator = factory.createGenerator(SINK)) {
+            generator.writeStartArray();
+            for (PlayerInfo player : players) {
+                PlayerInfoSerializer.write(player, generator, PlayerFields.ALL);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PlayerWriteBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
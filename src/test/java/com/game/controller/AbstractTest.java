@@ -1,8 +1,11 @@
 package com.game.controller;
 
 import com.game.config.AppConfig;
+import com.game.config.CompressionFilter;
 import com.game.config.MyWebAppInit;
 import com.game.config.WebConfig;
+import com.game.controller.utils.TemporaryJournalDir;
+import com.game.repository.PlayerRepository;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,7 +21,7 @@ import org.springframework.web.context.WebApplicationContext;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ActiveProfiles("dev")
-@ContextConfiguration(classes = {AppConfig.class, MyWebAppInit.class, WebConfig.class})
+@ContextConfiguration(classes = {AppConfig.class, MyWebAppInit.class, WebConfig.class}, initializers = TemporaryJournalDir.class)
 @WebAppConfiguration
 @Sql(scripts = "/test.sql", config = @SqlConfig(encoding = "UTF-8"))
 public abstract class AbstractTest {
@@ -33,12 +36,15 @@ public abstract class AbstractTest {
 
     @Before
     public void setup() {
+        // @Sql reloads the table behind the repository's back
+        context.getBean(PlayerRepository.class).reindex();
         mockMvc = MockMvcBuilders
                 .webAppContextSetup(context)
                 .addFilter(((request, response, chain) -> {
                     response.setCharacterEncoding("UTF-8");
                     chain.doFilter(request, response);
                 }))
+                .addFilter(context.getBean(CompressionFilter.class))
                 .build();
     }
 }
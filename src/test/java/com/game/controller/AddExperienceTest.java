@@ -0,0 +1,158 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.repository.ExperienceBuffer;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerService;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class AddExperienceTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @After
+    public void flush() {
+        context.getBean(ExperienceBuffer.class).flush();
+    }
+
+    //test1
+    @Test
+    public void readsIncludePendingGains() throws Exception {
+        PlayerInfoTest expected = testsHelper.getAllPlayers().get(0);
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/rest/players/" + expected.id + "/experience:add?amount=700"))
+                    .andExpect(status().isOk());
+        }
+        expected.experience += 2100;
+        expected.level = (int) (Math.sqrt(2500 + 200 * expected.experience) - 50) / 100;
+        expected.untilNextLevel = 50 * (expected.level + 1) * (expected.level + 2) - expected.experience;
+        assertEquals("Чтение игрока не учитывает незаписанный опыт.", expected, getPlayer(expected.id));
+
+        context.getBean(ExperienceBuffer.class).flush();
+        assertEquals("Опыт записан не так, как читался до записи.", expected, getPlayer(expected.id));
+        PlayerInfo stored = context.getBean(PlayerRepository.class).findInfoById(expected.id);
+        assertEquals("Опыт не записан в базу.", expected.experience, stored.experience);
+        assertEquals("Уровень не пересчитан при записи опыта.", expected.level, stored.level);
+        assertEquals("Опыт до следующего уровня не пересчитан при записи опыта.", expected.untilNextLevel, stored.untilNextLevel);
+    }
+
+    //test2
+    @Test
+    public void concurrentGainsAreNotLost() throws Exception {
+        List<PlayerInfoTest> players = testsHelper.getAllPlayers().subList(0, 4);
+        ExperienceBuffer buffer = context.getBean(ExperienceBuffer.class);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        for (PlayerInfoTest player : players) buffer.add(player.id, 1);
+                        if (i % 100 == 0) buffer.flush();
+                    }
+                }));
+            }
+            for (Future<?> result : results) result.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (PlayerInfoTest player : players) {
+            assertEquals("Часть опыта потеряна при чтении.", player.experience + 4000, getPlayer(player.id).experience);
+        }
+        buffer.flush();
+        for (PlayerInfoTest player : players) {
+            assertEquals("Часть опыта потеряна при записи.", player.experience + 4000,
+                    context.getBean(PlayerRepository.class).findInfoById(player.id).experience);
+        }
+    }
+
+    //test3
+    @Test
+    public void addExperienceInvalidParameters() throws Exception {
+        mockMvc.perform(post("/rest/players/1/experience:add"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/1/experience:add?amount=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/0/experience:add?amount=10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/410/experience:add?amount=10"))
+                .andExpect(status().isNotFound());
+    }
+
+    //test4
+    @Test
+    public void lookupIncludesPendingGains() throws Exception {
+        PlayerInfoTest expected = testsHelper.getAllPlayers().get(1);
+        context.getBean(PlayerService.class).addExperience(expected.id, 900);
+
+        PlayerInfo info = context.getBean(PlayerService.class).getByIds(Collections.singletonList(expected.id)).get(expected.id);
+        assertEquals("Поиск игроков по id не учитывает незаписанный опыт.", expected.experience + 900, info.experience);
+        assertEquals("Поиск игроков по id и чтение игрока расходятся.", getPlayer(expected.id).level, info.level);
+    }
+
+    //test5
+    @Test
+    public void readDoesNotWaitForFlush() throws Exception {
+        PlayerInfoTest expected = testsHelper.getAllPlayers().get(2);
+        PlayerService service = context.getBean(PlayerService.class);
+        ExperienceBuffer buffer = context.getBean(ExperienceBuffer.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch read = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the flush waits for the row lock of the player while it is read
+            Future<Boolean> holder = executor.submit(() -> transactionTemplate.execute(status -> {
+                context.getBean(PlayerRepository.class).findByIdForUpdate(expected.id);
+                locked.countDown();
+                try {
+                    return read.await(800, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }));
+            locked.await();
+            buffer.add(expected.id, 500);
+            Future<?> flush = executor.submit(buffer::flush);
+            Thread.sleep(100);
+            PlayerInfo info = service.getById(expected.id);
+            read.countDown();
+
+            assertEquals("Чтение игрока ждет записи опыта в базу.", true, holder.get(30, TimeUnit.SECONDS));
+            assertEquals("Чтение игрока во время записи не учитывает опыт.", expected.experience + 500, info.experience);
+            flush.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Опыт, прочитанный во время записи, посчитан дважды.", expected.experience + 500, getPlayer(expected.id).experience);
+    }
+
+    private PlayerInfoTest getPlayer(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, PlayerInfoTest.class);
+    }
+}
@@ -0,0 +1,115 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Race;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BulkUpdateTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void addExperienceRecomputesLevel() throws Exception {
+        List<PlayerInfoTest> humans = testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers());
+
+        String content = mockMvc.perform(post("/rest/players/bulk/experience?race=HUMAN&amount=9999999"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Возвращается не правильное количество игроков при запросе POST /rest/players/bulk/experience.",
+                humans.size(), Integer.parseInt(content));
+
+        for (PlayerInfoTest expected : humans) {
+            expected.experience = Math.min(expected.experience + 9999999, 10000000);
+            expected.level = (int) (Math.sqrt(2500 + 200 * expected.experience) - 50) / 100;
+            expected.untilNextLevel = 50 * (expected.level + 1) * (expected.level + 2) - expected.experience;
+            PlayerInfoTest actual = getPlayer(expected.id);
+            assertEquals("Опыт игрока не увеличен после POST /rest/players/bulk/experience.", expected.experience, actual.experience);
+            assertEquals("Уровень игрока не пересчитан после POST /rest/players/bulk/experience.", expected.level, actual.level);
+            assertEquals("Опыт до следующего уровня не пересчитан после POST /rest/players/bulk/experience.",
+                    expected.untilNextLevel, actual.untilNextLevel);
+        }
+        PlayerInfoTest other = testsHelper.getPlayerInfosByRace(Race.ELF, testsHelper.getAllPlayers()).get(0);
+        assertEquals("Изменен игрок, не подходящий под фильтр.", other, getPlayer(other.id));
+    }
+
+    //test2
+    @Test
+    public void banByFilterUpdatesCount() throws Exception {
+        List<PlayerInfoTest> warriors = testsHelper.getPlayerInfosByTitle("Воин", testsHelper.getAllPlayers());
+        int banned = testsHelper.getPlayerInfosByBaned(true, testsHelper.getAllPlayers()).size();
+        int notBannedWarriors = testsHelper.getPlayerInfosByBaned(false, warriors).size();
+
+        String content = mockMvc.perform(post("/rest/players/bulk/ban?title=Воин&banned=false&value=true"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Возвращается не правильное количество игроков при запросе POST /rest/players/bulk/ban.",
+                notBannedWarriors, Integer.parseInt(content));
+        assertEquals("Забаненные игроки не учитываются в GET /rest/players/count.",
+                banned + notBannedWarriors, count("banned=true"));
+        assertEquals("Не все игроки с титулом забанены.", 0, count("title=Воин&banned=false"));
+    }
+
+    //test3
+    @Test
+    public void bulkInvalidParameters() throws Exception {
+        mockMvc.perform(post("/rest/players/bulk/experience"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/bulk/experience?amount=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/bulk/ban?race=HUMAN"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test4
+    @Test
+    public void bulkUpdatesReachCachedPlayersAndLeaderboard() throws Exception {
+        List<PlayerInfoTest> humans = testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers());
+        PlayerInfoTest human = humans.get(0);
+        // cached before the updates
+        getPlayer(human.id);
+
+        mockMvc.perform(post("/rest/players/bulk/experience?race=HUMAN&amount=9999999"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/rest/players/bulk/ban?race=HUMAN&value=true"))
+                .andExpect(status().isOk());
+
+        PlayerInfoTest actual = getPlayer(human.id);
+        assertEquals("Опыт закешированного игрока не обновлен после массового обновления.", 10000000, actual.experience);
+        assertEquals("Уровень закешированного игрока не обновлен после массового обновления.", 446, actual.level);
+        assertEquals("Бан закешированного игрока не обновлен после массового обновления.", true, actual.banned);
+
+        String content = mockMvc.perform(get("/rest/players/top?n=" + humans.size()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<PlayerInfoTest> top = mapper.readValue(content, new TypeReference<List<PlayerInfoTest>>() {
+        });
+        assertEquals("Рейтинг не обновлен после массового обновления опыта.", humans.size(),
+                (int) top.stream().filter(player -> player.race == Race.HUMAN).count());
+    }
+
+    private PlayerInfoTest getPlayer(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, PlayerInfoTest.class);
+    }
+
+    private int count(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/count?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
@@ -0,0 +1,79 @@
+package com.game.controller;
+
+import com.game.config.CompressionFilter;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+
+public class CompressionFilterTest {
+
+    private final CompressionFilter filter = new CompressionFilter(new MockEnvironment());
+
+    //test1
+    @Test
+    public void nonBlockingOutputGoesOutUncompressed() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rest/players");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        NonBlockingResponse response = new NonBlockingResponse();
+        WriteListener listener = new WriteListener() {
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+        byte[] body = new byte[10000];
+        Arrays.fill(body, (byte) 'a');
+
+        filter.doFilter(request, response, (req, res) -> {
+            ServletOutputStream stream = res.getOutputStream();
+            stream.setWriteListener(listener);
+            if (stream.isReady()) stream.write(body);
+        });
+
+        assertEquals("Слушатель записи не передан потоку ответа.", listener, response.stream.listener);
+        assertNull("Ответ с неблокирующей записью сжимается.", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Ответ с неблокирующей записью изменен.", body.length, response.stream.bytes.size());
+    }
+
+    private static class NonBlockingResponse extends MockHttpServletResponse {
+        final RecordingStream stream = new RecordingStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return stream;
+        }
+    }
+
+    private static class RecordingStream extends ServletOutputStream {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        WriteListener listener;
+
+        @Override
+        public void write(int b) {
+            bytes.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.listener = writeListener;
+        }
+    }
+}
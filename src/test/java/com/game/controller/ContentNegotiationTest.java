@@ -0,0 +1,112 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNull;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ContentNegotiationTest extends AbstractTest {
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final TypeReference<List<PlayerInfoTest>> typeReference = new TypeReference<List<PlayerInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void binaryFormatsOnRequest() throws Exception {
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(0, 5, testsHelper.getAllPlayers());
+
+        MockHttpServletResponse smile = mockMvc.perform(get("/rest/players?pageSize=5").accept(SMILE))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertTrue("Не тот формат ответа на запрос GET /rest/players с Accept: Smile.",
+                SMILE.isCompatibleWith(MediaType.valueOf(smile.getContentType())));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players в формате Smile.",
+                expected, new ObjectMapper(new SmileFactory()).readValue(smile.getContentAsByteArray(), typeReference));
+
+        MockHttpServletResponse cbor = mockMvc.perform(get("/rest/players?pageSize=5").accept(CBOR))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players в формате CBOR.",
+                expected, new ObjectMapper(new CBORFactory()).readValue(cbor.getContentAsByteArray(), typeReference));
+    }
+
+    //test2
+    @Test
+    public void largeResponsesAreCompressed() throws Exception {
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(0, 40, testsHelper.getAllPlayers());
+
+        MockHttpServletResponse gzip = mockMvc.perform(get("/rest/players?pageSize=40")
+                .header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertEquals("Большой ответ не сжат gzip.", "gzip", gzip.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Возвращается не правильный результат при сжатом запросе GET /rest/players.",
+                expected, read(new GZIPInputStream(new ByteArrayInputStream(gzip.getContentAsByteArray()))));
+
+        MockHttpServletResponse deflate = mockMvc.perform(get("/rest/players?pageSize=40")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertEquals("Большой ответ не сжат deflate.", "deflate", deflate.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Возвращается не правильный результат при сжатом запросе GET /rest/players.",
+                expected, read(new InflaterInputStream(new ByteArrayInputStream(deflate.getContentAsByteArray()))));
+    }
+
+    //test3
+    @Test
+    public void defaultsAreUnchanged() throws Exception {
+        MockHttpServletResponse small = mockMvc.perform(get("/rest/players?pageSize=1")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertNull("Маленький ответ сжимается.", small.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players.",
+                testsHelper.getPlayerInfosByPage(0, 1, testsHelper.getAllPlayers()),
+                read(new ByteArrayInputStream(small.getContentAsByteArray())));
+
+        MockHttpServletResponse plain = mockMvc.perform(get("/rest/players?pageSize=40"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertNull("Ответ сжимается без Accept-Encoding.", plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue("Формат по умолчанию не JSON.",
+                MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.valueOf(plain.getContentType())));
+    }
+
+    //test4
+    @Test
+    public void unsupportedFormatIsRejected() throws Exception {
+        mockMvc.perform(get("/rest/players?pageSize=5").accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+        mockMvc.perform(get("/rest/players?ids=1,2").accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isNotAcceptable());
+        mockMvc.perform(get("/rest/players/1").accept(CBOR))
+                .andExpect(status().isOk());
+    }
+
+    private List<PlayerInfoTest> read(InputStream stream) throws Exception {
+        return new ObjectMapper().readValue(StreamUtils.copyToByteArray(stream), typeReference);
+    }
+}
@@ -0,0 +1,69 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class CreatePlayersBatchTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void createPlayersBatchTest() throws Exception {
+        String body = "[" + TestsHelper.BANNED_TRUE_JSON + "," +
+                TestsHelper.TOO_BIG_EXPERIENCE_JSON + "," +
+                TestsHelper.NORMAL_JSON + "]";
+        String content = mockMvc.perform(post("/rest/players/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode actual = mapper.readTree(content);
+
+        assertEquals("Возвращается не правильное количество результатов при пакетном создании игроков.", 3, actual.size());
+        assertEquals("Некорректный игрок не должен создаваться.", false, actual.get(1).get("success").asBoolean());
+        assertEquals("Некорректный игрок не должен создаваться.", "invalid experience", actual.get(1).get("error").asText());
+
+        PlayerInfoTest expected = new PlayerInfoTest(41L, "Амарылис", "Прозелит", Race.DWARF, Profession.CLERIC, 988059600000L, true, 63986, 35, 2614);
+        assertEquals("Возвращается не правильный результат при пакетном создании игроков.", true, actual.get(0).get("success").asBoolean());
+        assertEquals("Возвращается не правильный результат при пакетном создании игроков.",
+                expected, mapper.treeToValue(actual.get(0).get("player"), PlayerInfoTest.class));
+        assertEquals("Возвращается не правильный идентификатор при пакетном создании игроков.",
+                42L, actual.get(2).get("player").get("id").asLong());
+
+        String stored = mockMvc.perform(get("/rest/players/41"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        PlayerInfoTest storedPlayer = mapper.readValue(stored, PlayerInfoTest.class);
+        assertEquals("Созданный пакетом игрок не сохранен.", expected.name, storedPlayer.name);
+        assertEquals("Созданный пакетом игрок сохранен с неправильным уровнем.", expected.level, storedPlayer.level);
+        assertEquals("Созданный пакетом игрок сохранен с неправильным опытом до уровня.",
+                expected.untilNextLevel, storedPlayer.untilNextLevel);
+
+        String count = mockMvc.perform(get("/rest/players/count"))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Созданные пакетом игроки не учитываются в GET /rest/players/count.",
+                testsHelper.getAllPlayers().size() + 2, Integer.parseInt(count));
+    }
+
+    //test2
+    @Test
+    public void createPlayersEmptyBatchTest() throws Exception {
+        mockMvc.perform(post("/rest/players/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isOk());
+    }
+}
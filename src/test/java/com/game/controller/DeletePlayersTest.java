@@ -0,0 +1,64 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Race;
+import org.junit.Test;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class DeletePlayersTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+
+    //test1
+    @Test
+    public void deleteBannedPlayers() throws Exception {
+        int all = testsHelper.getAllPlayers().size();
+        int banned = testsHelper.getPlayerInfosByBaned(true, testsHelper.getAllPlayers()).size();
+
+        String content = mockMvc.perform(delete("/rest/players?banned=true"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("Возвращается не правильное количество игроков при запросе DELETE /rest/players.",
+                banned, Integer.parseInt(content));
+        assertEquals("Удаленные игроки учитываются в GET /rest/players/count.", 0, count("banned=true"));
+        assertEquals("Удалены лишние игроки.", all - banned, count(""));
+    }
+
+    //test2
+    @Test
+    public void deleteByNameAndRace() throws Exception {
+        int humans = testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers()).size();
+        int toDelete = testsHelper.getPlayerInfosByRace(Race.HUMAN,
+                testsHelper.getPlayerInfosByName("а", testsHelper.getAllPlayers())).size();
+
+        String content = mockMvc.perform(delete("/rest/players?race=HUMAN&name=а"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("Возвращается не правильное количество игроков при запросе DELETE /rest/players.",
+                toDelete, Integer.parseInt(content));
+        assertEquals("Удаленные игроки учитываются в GET /rest/players/count.", humans - toDelete, count("race=HUMAN"));
+    }
+
+    //test3
+    @Test
+    public void deleteWithoutFilterIsRejected() throws Exception {
+        mockMvc.perform(delete("/rest/players"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/rest/players?race=ANY"))
+                .andExpect(status().isBadRequest());
+        assertEquals("Игроки удалены запросом без фильтра.", testsHelper.getAllPlayers().size(), count(""));
+    }
+
+    private int count(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/count?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
@@ -0,0 +1,71 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Race;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExportTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void exportAllPlayersAsLines() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/rest/players/export"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+
+        assertEquals("Возвращается не правильный тип содержимого при запросе GET /rest/players/export.",
+                PlayerController.NDJSON, response.getContentType().split(";")[0]);
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/export.",
+                sortedById(testsHelper.getAllPlayers()), parse(response.getContentAsString()));
+    }
+
+    //test2
+    @Test
+    public void exportFilteredPlayers() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/export?race=HUMAN&title=Воин"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByRace(Race.HUMAN,
+                testsHelper.getPlayerInfosByTitle("Воин", testsHelper.getAllPlayers()));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/export с фильтрами.",
+                sortedById(expected), parse(content));
+    }
+
+    //test3
+    @Test
+    public void exportNothingFound() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/export?name=нетакогоимени"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals("Возвращаются лишние игроки при запросе GET /rest/players/export.", "", content);
+    }
+
+    private List<PlayerInfoTest> parse(String content) throws Exception {
+        List<PlayerInfoTest> result = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            if (!line.isEmpty()) result.add(mapper.readValue(line, PlayerInfoTest.class));
+        }
+        return result;
+    }
+
+    private List<PlayerInfoTest> sortedById(List<PlayerInfoTest> players) {
+        return players.stream().sorted(Comparator.comparing(p -> p.id)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,107 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Race;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetAllCursorTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<PlayerInfoTest>> typeReference = new TypeReference<List<PlayerInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getAllWithCursorEveryOrder() throws Exception {
+        for (PlayerOrder order : PlayerOrder.values()) {
+            List<PlayerInfoTest> actual = readAllPages("order=" + order.name() + "&pageSize=4");
+            List<PlayerInfoTest> expected = sorted(testsHelper.getAllPlayers(), order);
+
+            assertEquals("Возвращается не правильный результат при постраничном обходе по курсору с order=" + order + ".",
+                    expected, actual);
+        }
+    }
+
+    //test2
+    @Test
+    public void getAllWithCursorAndFilters() throws Exception {
+        List<PlayerInfoTest> actual = readAllPages("order=LEVEL&pageSize=2&race=HUMAN");
+        List<PlayerInfoTest> expected = sorted(
+                testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers()), PlayerOrder.LEVEL);
+
+        assertEquals("Возвращается не правильный результат при постраничном обходе по курсору с параметром race.",
+                expected, actual);
+    }
+
+    //test3
+    @Test
+    public void getAllWithInvalidCursor() throws Exception {
+        mockMvc.perform(get("/rest/players?cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test4
+    @Test
+    public void getAllWithCursorOfAnotherOrder() throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/rest/players?cursor=&order=NAME"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        String next = response.getHeader(PlayerController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/rest/players?order=EXPERIENCE&cursor=" + next))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<PlayerInfoTest> readAllPages(String query) throws Exception {
+        List<PlayerInfoTest> result = new ArrayList<>();
+        String cursor = "";
+        while (!isNull(cursor)) {
+            MockHttpServletResponse response = mockMvc.perform(get("/rest/players?" + query + "&cursor=" + cursor))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse();
+            result.addAll(mapper.readValue(response.getContentAsString(), typeReference));
+            cursor = response.getHeader(PlayerController.NEXT_CURSOR_HEADER);
+        }
+        return result;
+    }
+
+    private List<PlayerInfoTest> sorted(List<PlayerInfoTest> players, PlayerOrder order) {
+        Function<PlayerInfoTest, Comparable> key;
+        switch (order) {
+            case NAME:
+                key = p -> p.name;
+                break;
+            case EXPERIENCE:
+                key = p -> p.experience;
+                break;
+            case BIRTHDAY:
+                key = p -> p.birthday;
+                break;
+            case LEVEL:
+                key = p -> p.level;
+                break;
+            default:
+                key = p -> p.id;
+        }
+        Comparator<PlayerInfoTest> comparator = Comparator.comparing(key);
+        return players.stream()
+                .sorted(comparator.thenComparing(p -> p.id))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,81 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Race;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetPageTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getPageWithoutFilters() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/page"))
+                .andExpect(status().isOk());
+
+        JsonNode actual = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+        List<PlayerInfoTest> expected = testsHelper.getAllPlayers();
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/page.",
+                testsHelper.getPlayerInfosByPage(0, 3, expected), readPlayers(actual));
+        assertEquals("Возвращается не правильное количество при запросе GET /rest/players/page.",
+                expected.size(), actual.get("count").asInt());
+    }
+
+    //test2
+    @Test
+    public void getPageWithFiltersRaceLastPage() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/page?race=HUMAN&pageNumber=1&pageSize=4"))
+                .andExpect(status().isOk());
+
+        MvcResult result = resultActions.andReturn();
+        JsonNode actual = mapper.readTree(result.getResponse().getContentAsString());
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers());
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/page с параметрами race и pageNumber.",
+                testsHelper.getPlayerInfosByPage(1, 4, expected), readPlayers(actual));
+        assertEquals("Возвращается не правильное количество при запросе GET /rest/players/page с параметрами race и pageNumber.",
+                expected.size(), actual.get("count").asInt());
+    }
+
+    //test3
+    @Test
+    public void getPageBeyondLastPage() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/players/page?name=ра&pageNumber=100"))
+                .andExpect(status().isOk());
+
+        JsonNode actual = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByName("ра", testsHelper.getAllPlayers());
+
+        assertEquals("Страница за пределами списка должна быть пустой.", 0, actual.get("players").size());
+        assertEquals("Возвращается не правильное количество при запросе GET /rest/players/page с параметром name.",
+                expected.size(), actual.get("count").asInt());
+    }
+
+    //test4
+    @Test
+    public void getPageWithNonPositivePageSize() throws Exception {
+        mockMvc.perform(get("/rest/players/page?pageSize=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players?pageSize=-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<PlayerInfoTest> readPlayers(JsonNode page) throws Exception {
+        return Arrays.asList(mapper.treeToValue(page.get("players"), PlayerInfoTest[].class));
+    }
+}
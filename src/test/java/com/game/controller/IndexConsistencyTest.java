@@ -0,0 +1,91 @@
+package com.game.controller;
+
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class IndexConsistencyTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+
+    //test1
+    @Test
+    public void countByRaceFollowsCreateAndDelete() throws Exception {
+        int humans = testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers()).size();
+
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+        assertEquals("Созданный игрок не учитывается в GET /rest/players/count с параметром race.",
+                humans + 1, count("race=HUMAN"));
+
+        mockMvc.perform(delete("/rest/players/" + (testsHelper.getAllPlayers().size() + 1)))
+                .andExpect(status().isOk());
+        assertEquals("Удаленный игрок учитывается в GET /rest/players/count с параметром race.",
+                humans, count("race=HUMAN"));
+    }
+
+    //test2
+    @Test
+    public void countByProfessionAndBannedFollowsUpdate() throws Exception {
+        int clerics = testsHelper.getPlayerInfosByProfession(Profession.CLERIC, testsHelper.getAllPlayers()).size();
+        int banned = testsHelper.getPlayerInfosByBaned(true, testsHelper.getAllPlayers()).size();
+        boolean firstBanned = testsHelper.getPlayerInfosById(1).banned;
+        boolean firstCleric = testsHelper.getPlayerInfosById(1).profession == Profession.CLERIC;
+
+        mockMvc.perform(post("/rest/players/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"profession\": \"CLERIC\", \"banned\": " + !firstBanned + "}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Измененная профессия не учитывается в GET /rest/players/count.",
+                firstCleric ? clerics : clerics + 1, count("profession=CLERIC"));
+        assertEquals("Измененный статус бана не учитывается в GET /rest/players/count.",
+                firstBanned ? banned - 1 : banned + 1, count("banned=true"));
+        assertEquals("Фильтры по перечислениям не совпадают с общим количеством игроков.",
+                testsHelper.getAllPlayers().size(), count("banned=true") + count("banned=false"));
+    }
+
+    //test3
+    @Test
+    public void countBySubstringOfNameAndTitle() throws Exception {
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/count с параметром name.",
+                testsHelper.getPlayerInfosByName("лан", testsHelper.getAllPlayers()).size(), count("name=лан"));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/count с параметром title.",
+                testsHelper.getPlayerInfosByTitle("эльфенок", testsHelper.getAllPlayers()).size(), count("title=эльфенок"));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/count с параметрами title и race.",
+                testsHelper.getPlayerInfosByRace(Race.HUMAN,
+                        testsHelper.getPlayerInfosByTitle("Воин", testsHelper.getAllPlayers())).size(),
+                count("title=Воин&race=HUMAN"));
+    }
+
+    //test4
+    @Test
+    public void countBySubstringFollowsUpdate() throws Exception {
+        int withLan = testsHelper.getPlayerInfosByName("лан", testsHelper.getAllPlayers()).size();
+
+        mockMvc.perform(post("/rest/players/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Новолан\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Новое имя не находится после изменения игрока.", withLan + 1, count("name=лан"));
+        assertEquals("Старое имя находится после изменения игрока.", 0, count("name=Ниус"));
+    }
+
+    private int count(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/count?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
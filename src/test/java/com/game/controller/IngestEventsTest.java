@@ -0,0 +1,84 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class IngestEventsTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void mixedEventsAreApplied() throws Exception {
+        List<PlayerInfoTest> players = testsHelper.getAllPlayers();
+        PlayerInfoTest first = players.get(0);
+        PlayerInfoTest second = players.get(1);
+        long before = applied();
+
+        String body = "[" +
+                "{\"id\":" + first.id + ",\"type\":\"EXPERIENCE\",\"amount\":1000}," +
+                "{\"id\":" + first.id + ",\"type\":\"TITLE\",\"title\":\"Новый титул\"}," +
+                "{\"id\":" + first.id + ",\"type\":\"EXPERIENCE\",\"amount\":500}," +
+                "{\"id\":" + second.id + ",\"type\":\"BAN\"}," +
+                "{\"id\":" + second.id + ",\"type\":\"UNBAN\"}," +
+                "{\"id\":" + second.id + ",\"type\":\"BAN\"}," +
+                "{\"id\":410,\"type\":\"BAN\"}]";
+        String content = mockMvc.perform(post("/rest/players/events").content(body).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals("Возвращается не правильное количество принятых событий.", 7, Integer.parseInt(content));
+
+        for (int i = 0; i < 500 && applied() < before + 6; i++) Thread.sleep(10);
+        assertEquals("Применены не все события существующих игроков.", before + 6, applied());
+
+        first.experience += 1500;
+        first.level = (int) (Math.sqrt(2500 + 200 * first.experience) - 50) / 100;
+        first.untilNextLevel = 50 * (first.level + 1) * (first.level + 2) - first.experience;
+        first.title = "Новый титул";
+        assertEquals("События опыта и титула применены не так.", first, getPlayer(first.id));
+        second.banned = true;
+        assertEquals("События бана применены не по порядку.", second, getPlayer(second.id));
+    }
+
+    //test2
+    @Test
+    public void invalidEventRefusesBatch() throws Exception {
+        mockMvc.perform(post("/rest/players/events").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\":1,\"type\":\"BAN\"},{\"id\":1,\"type\":\"EXPERIENCE\"}]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/events").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\":0,\"type\":\"BAN\"}]"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/events").contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\":1,\"type\":\"TITLE\",\"title\":\"\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long applied() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/events/metrics"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<PlayerIngestMetrics> metrics = mapper.readValue(content, new TypeReference<List<PlayerIngestMetrics>>() {
+        });
+        return metrics.stream().mapToLong(partition -> partition.applied).sum();
+    }
+
+    private PlayerInfoTest getPlayer(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, PlayerInfoTest.class);
+    }
+}
@@ -0,0 +1,82 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class LeaderboardTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<PlayerInfoTest>> typeReference = new TypeReference<List<PlayerInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getTop() throws Exception {
+        String content = mockMvc.perform(get("/rest/players/top?n=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<PlayerInfoTest> actual = mapper.readValue(content, typeReference);
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/top.",
+                ranked().stream().limit(5).collect(Collectors.toList()), actual);
+    }
+
+    //test2
+    @Test
+    public void getRankOfEveryPlayer() throws Exception {
+        List<PlayerInfoTest> ranked = ranked();
+        for (int i = 0; i < ranked.size(); i++) {
+            assertEquals("Возвращается не правильный результат при запросе GET /rest/players/{id}/rank.",
+                    i + 1, rank(ranked.get(i).id));
+        }
+    }
+
+    //test3
+    @Test
+    public void getRankFollowsExperienceChange() throws Exception {
+        long last = ranked().get(ranked().size() - 1).id;
+
+        mockMvc.perform(post("/rest/players/" + last)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\": 10000000}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Позиция игрока не изменилась после изменения опыта.", 1, rank(last));
+    }
+
+    //test4
+    @Test
+    public void getRankInvalidId() throws Exception {
+        mockMvc.perform(get("/rest/players/0/rank"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/426/rank"))
+                .andExpect(status().isNotFound());
+    }
+
+    private int rank(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id + "/rank"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(content).get("rank").asInt();
+    }
+
+    private List<PlayerInfoTest> ranked() {
+        return testsHelper.getAllPlayers().stream()
+                .sorted(Comparator.comparing((PlayerInfoTest p) -> -p.experience).thenComparing(p -> p.id))
+                .collect(Collectors.toList());
+    }
+}
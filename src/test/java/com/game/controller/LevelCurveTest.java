@@ -0,0 +1,146 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.entity.Race;
+import com.game.repository.PlayerFilter;
+import com.game.repository.QuadraticLevelCurve;
+import com.game.service.PlayerService;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class LevelCurveTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @After
+    public void restoreCurve() {
+        context.getBean(PlayerService.class).changeLevelCurve(new QuadraticLevelCurve(50));
+    }
+
+    //test1
+    @Test
+    public void curveChangeRecomputesStoredLevels() throws Exception {
+        List<PlayerInfoTest> players = testsHelper.getAllPlayers();
+
+        String content = mockMvc.perform(post("/rest/players/levels/curve?step=100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        int changed = 0;
+        for (PlayerInfoTest expected : players) {
+            int level = (int) (Math.sqrt(10000 + 400 * expected.experience) - 100) / 200;
+            int untilNextLevel = 100 * (level + 1) * (level + 2) - expected.experience;
+            if (level != expected.level || untilNextLevel != expected.untilNextLevel) changed++;
+            PlayerInfoTest actual = getPlayer(expected.id);
+            assertEquals("Уровень не пересчитан после смены кривой.", level, actual.level);
+            assertEquals("Опыт до следующего уровня не пересчитан после смены кривой.", untilNextLevel, actual.untilNextLevel);
+        }
+        assertEquals("Возвращается не правильное количество пересчитанных игроков.", changed, Integer.parseInt(content));
+        assertEquals("Фильтр по уровню не видит пересчитанные уровни.",
+                (int) players.stream().filter(p -> (int) (Math.sqrt(10000 + 400 * p.experience) - 100) / 200 >= 10).count(),
+                count("minLevel=10"));
+
+        mockMvc.perform(post("/rest/players/levels/curve?step=50"))
+                .andExpect(status().isOk());
+        for (PlayerInfoTest expected : players) {
+            assertEquals("Уровни не вернулись после возврата кривой.", expected, getPlayer(expected.id));
+        }
+    }
+
+    //test2
+    @Test
+    public void bulkExperienceUsesCurveWithoutFormula() throws Exception {
+        PlayerService service = context.getBean(PlayerService.class);
+        service.changeLevelCurve(level -> 1000L * level);
+        List<PlayerInfoTest> humans = testsHelper.getPlayerInfosByRace(Race.HUMAN, testsHelper.getAllPlayers());
+
+        service.addExperience(new PlayerFilter(null, null, null, null, null, null, null, null, "HUMAN", null, null), 500);
+        for (PlayerInfoTest expected : humans) {
+            int experience = expected.experience + 500;
+            PlayerInfoTest actual = getPlayer(expected.id);
+            assertEquals("Уровень не пересчитан по кривой без формулы.", experience / 1000, actual.level);
+            assertEquals("Опыт до следующего уровня не пересчитан по кривой без формулы.",
+                    (experience / 1000 + 1) * 1000 - experience, actual.untilNextLevel);
+        }
+    }
+
+    //test3
+    @Test
+    public void invalidStep() throws Exception {
+        mockMvc.perform(post("/rest/players/levels/curve"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/rest/players/levels/curve?step=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test4
+    @Test
+    public void levelWrittenDuringCurveChangeFollowsNewCurve() throws Exception {
+        PlayerService service = context.getBean(PlayerService.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the level is computed with the old curve and committed after the change started
+            Future<?> update = executor.submit(() -> transactionTemplate.execute(status -> {
+                PlayerInfo info = new PlayerInfo();
+                info.experience = 100000;
+                service.updatePlayer(1, info);
+                written.countDown();
+                try {
+                    changed.await(500, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            Future<?> change = executor.submit(() -> {
+                written.await();
+                service.changeLevelCurve(new QuadraticLevelCurve(100));
+                changed.countDown();
+                return null;
+            });
+            update.get(30, TimeUnit.SECONDS);
+            change.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int level = (int) (Math.sqrt(10000 + 400 * 100000) - 100) / 200;
+        PlayerInfoTest actual = getPlayer(1);
+        assertEquals("Уровень, записанный во время смены кривой, посчитан по старой кривой.", level, actual.level);
+        assertEquals("Опыт до следующего уровня, записанный во время смены кривой, посчитан по старой кривой.",
+                100 * (level + 1) * (level + 2) - 100000, actual.untilNextLevel);
+    }
+
+    private PlayerInfoTest getPlayer(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, PlayerInfoTest.class);
+    }
+
+    private int count(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/count?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
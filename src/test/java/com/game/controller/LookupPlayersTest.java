@@ -0,0 +1,76 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class LookupPlayersTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<Map<String, Object>>> typeReference = new TypeReference<List<Map<String, Object>>>() {
+    };
+
+    //test1
+    @Test
+    public void getPlayersInRequestOrder() throws Exception {
+        List<Map<String, Object>> items = lookup(get("/rest/players?ids=7,415,3,7"));
+
+        assertEquals("Возвращается не правильное количество игроков при запросе GET /rest/players с параметром ids.",
+                4, items.size());
+        assertPlayer(items.get(0), 7);
+        assertEquals("Отсутствующий игрок не помечен.", 415, items.get(1).get("id"));
+        assertEquals("Отсутствующий игрок не помечен.", false, items.get(1).get("found"));
+        assertEquals("Отсутствующий игрок не помечен.", null, items.get(1).get("player"));
+        assertPlayer(items.get(2), 3);
+        assertPlayer(items.get(3), 7);
+    }
+
+    //test2
+    @Test
+    public void lookupPlayersFromBody() throws Exception {
+        List<Map<String, Object>> items = lookup(post("/rest/players/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[12, 1]"));
+
+        assertEquals("Возвращается не правильное количество игроков при запросе POST /rest/players/lookup.",
+                2, items.size());
+        assertPlayer(items.get(0), 12);
+        assertPlayer(items.get(1), 1);
+    }
+
+    //test3
+    @Test
+    public void lookupInvalidIds() throws Exception {
+        mockMvc.perform(get("/rest/players?ids=1,0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players?ids=1,test"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void assertPlayer(Map<String, Object> item, long id) {
+        PlayerInfoTest actual = mapper.convertValue(item.get("player"), PlayerInfoTest.class);
+        assertEquals("Игрок не найден при запросе нескольких игроков.", true, item.get("found"));
+        assertEquals("Возвращается не правильный игрок при запросе нескольких игроков.",
+                testsHelper.getPlayerInfosById(id), actual);
+    }
+
+    private List<Map<String, Object>> lookup(RequestBuilder request) throws Exception {
+        String content = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, typeReference);
+    }
+}
@@ -0,0 +1,182 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import com.game.repository.ExperienceBuffer;
+import com.game.repository.PlayerRepository;
+import com.game.service.PlayerService;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class PlayerCacheTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void secondReadIsCacheHit() throws Exception {
+        CacheInfo before = cacheInfo();
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/{id}.",
+                testsHelper.getPlayerInfosById(5), getPlayer(5));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/{id}.",
+                testsHelper.getPlayerInfosById(5), getPlayer(5));
+
+        CacheInfo after = cacheInfo();
+        assertEquals("Первое чтение игрока не считается промахом кэша.", before.missCount + 1, (long) after.missCount);
+        assertEquals("Повторное чтение игрока не считается попаданием в кэш.", before.hitCount + 1, (long) after.hitCount);
+    }
+
+    //test2
+    @Test
+    public void cachedPlayerFollowsUpdateAndDelete() throws Exception {
+        getPlayer(5);
+
+        mockMvc.perform(post("/rest/players/5")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Кэшированный\", \"experience\": 1000}"))
+                .andExpect(status().isOk());
+        PlayerInfoTest updated = getPlayer(5);
+        assertEquals("Из кэша возвращается старое имя.", "Кэшированный", updated.name);
+        assertEquals("Из кэша возвращается старый опыт.", 1000, (int) updated.experience);
+
+        mockMvc.perform(post("/rest/players/bulk/experience?name=Кэшированный&amount=500"))
+                .andExpect(status().isOk());
+        assertEquals("Из кэша возвращается опыт до массового изменения.", 1500, (int) getPlayer(5).experience);
+
+        mockMvc.perform(delete("/rest/players/5"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players/5"))
+                .andExpect(status().isNotFound());
+    }
+
+    //test3
+    @Test
+    public void concurrentReadsNeverGoBack() throws Exception {
+        PlayerService playerService = context.getBean(PlayerService.class);
+        int first = playerService.getById(1).experience + 1;
+        int last = first + 100;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<Boolean>> readers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                readers.add(executor.submit(() -> {
+                    int seen = -1;
+                    while (writing.get()) {
+                        PlayerInfo player = playerService.getById(1);
+                        if (player.experience < seen) return false;
+                        seen = player.experience;
+                    }
+                    return true;
+                }));
+            }
+            Future<?> writer = executor.submit(() -> {
+                try {
+                    for (int experience = first; experience <= last; experience++) {
+                        PlayerInfo info = new PlayerInfo();
+                        info.experience = experience;
+                        playerService.updatePlayer(1, info);
+                    }
+                } finally {
+                    writing.set(false);
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            for (Future<Boolean> reader : readers) {
+                assertTrue("Из кэша прочитан опыт старше уже прочитанного.", reader.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals("Из кэша возвращается не последнее значение после параллельных изменений.",
+                last, (int) getPlayer(1).experience);
+    }
+
+    //test4
+    @Test
+    public void concurrentWritersLeaveIndexesCurrent() throws Exception {
+        PlayerService playerService = context.getBean(PlayerService.class);
+        ExperienceBuffer experienceBuffer = context.getBean(ExperienceBuffer.class);
+        PlayerRepository playerRepository = context.getBean(PlayerRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        playerService.getById(1);
+        CountDownLatch read = new CountDownLatch(1);
+        CountDownLatch flushed = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // the title is changed in a transaction held open while the gain is flushed
+            Future<?> title = executor.submit(() -> transactionTemplate.execute(status -> {
+                PlayerInfo info = new PlayerInfo();
+                info.title = "Параллельный";
+                playerService.updatePlayer(1, info);
+                read.countDown();
+                try {
+                    flushed.await(500, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            Future<?> gain = executor.submit(() -> {
+                read.await();
+                experienceBuffer.add(1, 100);
+                experienceBuffer.flush();
+                flushed.countDown();
+                return null;
+            });
+            title.get(30, TimeUnit.SECONDS);
+            gain.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PlayerInfo stored = playerRepository.findInfoById(1);
+        PlayerInfo cached = playerService.getById(1);
+        assertEquals("В кэше не последний титул после параллельных изменений.", "Параллельный", cached.title);
+        assertEquals("В кэше не последний опыт после параллельных изменений.", stored.experience, cached.experience);
+        assertEquals("В кэше не последний уровень после параллельных изменений.", stored.level, cached.level);
+        assertEquals("Место в рейтинге не соответствует опыту после параллельных изменений.",
+                playerService.getTop(testsHelper.getAllPlayers().size()).stream()
+                        .sorted(Comparator.comparing((PlayerInfo player) -> -player.experience).thenComparing(player -> player.id))
+                        .map(player -> player.id).collect(Collectors.toList()),
+                playerService.getTop(testsHelper.getAllPlayers().size()).stream()
+                        .map(player -> player.id).collect(Collectors.toList()));
+    }
+
+    private PlayerInfoTest getPlayer(long id) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/" + id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, PlayerInfoTest.class);
+    }
+
+    private CacheInfo cacheInfo() throws Exception {
+        String content = mockMvc.perform(get("/rest/metrics/cache"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, CacheInfo.class);
+    }
+}
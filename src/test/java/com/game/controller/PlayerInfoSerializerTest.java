@@ -0,0 +1,49 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.config.WebConfig;
+import com.game.entity.Profession;
+import com.game.entity.Race;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Date;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class PlayerInfoSerializerTest {
+
+    private final ObjectMapper beanMapper = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+    private final ObjectMapper mapper = WebConfig.configure(new ObjectMapper());
+
+    //test1
+    @Test
+    public void writesLikeTheBeanSerializer() throws Exception {
+        PlayerInfo player = new PlayerInfo(7L, "Имя \"в\" кавычках", "Титул", Race.ELF, Profession.WARLOCK,
+                new Date(988059600000L), true, 1500, 5, 300);
+        assertEquals("Игрок записывается не так, как сериализатором Jackson.",
+                beanMapper.writeValueAsString(player), mapper.writeValueAsString(player));
+
+        PlayerInfo empty = new PlayerInfo();
+        assertEquals("Игрок без полей записывается не так, как сериализатором Jackson.",
+                beanMapper.writeValueAsString(empty), mapper.writeValueAsString(empty));
+    }
+
+    //test2
+    @Test
+    public void writesOnlyIncludedFields() throws Exception {
+        PlayerInfo player = new PlayerInfo(7L, "Имя", "Титул", Race.ELF, Profession.WARLOCK,
+                new Date(988059600000L), false, 1500, 5, 300);
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(json)) {
+            PlayerInfoSerializer.write(player, generator, PlayerFields.parse("level,id,banned"));
+        }
+        assertEquals("Записываются не только выбранные поля.",
+                "{\"id\":7,\"banned\":false,\"level\":5}", json.toString());
+    }
+}
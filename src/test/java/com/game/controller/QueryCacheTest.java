@@ -0,0 +1,95 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class QueryCacheTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<PlayerInfoTest>> typeReference = new TypeReference<List<PlayerInfoTest>>() {
+    };
+    private Statistics statistics;
+
+    @Before
+    public void enableStatistics() {
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @After
+    public void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    //test1
+    @Test
+    public void repeatedPageIsServedFromCache() throws Exception {
+        List<PlayerInfoTest> expected = testsHelper.getPlayerInfosByPage(0, 3, testsHelper.getAllPlayers());
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players.", expected, getAll("order=ID&pageSize=3"));
+        long queries = statistics.getPrepareStatementCount();
+        assertEquals("Возвращается не правильный результат при повторном запросе GET /rest/players.", expected, getAll("order=ID&pageSize=3"));
+        assertEquals("Повторный запрос GET /rest/players выполняет запрос к базе.", queries, statistics.getPrepareStatementCount());
+    }
+
+    //test2
+    @Test
+    public void cachedCountFollowsCreate() throws Exception {
+        int titled = testsHelper.getPlayerInfosByTitle("Воин", testsHelper.getAllPlayers()).size();
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/count.", titled, count("title=Воин"));
+        long queries = statistics.getPrepareStatementCount();
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/count.", titled, count("title=Воин"));
+        assertEquals("Повторный запрос GET /rest/players/count выполняет запрос к базе.", queries, statistics.getPrepareStatementCount());
+
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Новичок\", \"title\": \"Воин\", \"race\": \"HUMAN\", \"profession\": \"WARRIOR\"," +
+                        " \"birthday\": 988059600000, \"experience\": 10}"))
+                .andExpect(status().isOk());
+        assertEquals("Кэшированное количество не учитывает созданного игрока.", titled + 1, count("title=Воин"));
+    }
+
+    //test3
+    @Test
+    public void cachedPageFollowsUpdate() throws Exception {
+        PlayerInfoTest first = getAll("order=ID&pageSize=3").get(0);
+
+        mockMvc.perform(post("/rest/players/" + first.id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Переименован\"}"))
+                .andExpect(status().isOk());
+        assertEquals("Кэшированная страница не учитывает изменение игрока.", "Переименован", getAll("order=ID&pageSize=3").get(0).name);
+    }
+
+    private List<PlayerInfoTest> getAll(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, typeReference);
+    }
+
+    private int count(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/count?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return Integer.parseInt(content);
+    }
+}
@@ -0,0 +1,62 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class QueryShapesTest extends AbstractTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<QueryShapeInfo>> typeReference = new TypeReference<List<QueryShapeInfo>>() {
+    };
+
+    //test1
+    @Test
+    public void differentFiltersShareOneShape() throws Exception {
+        long before = executions("page:EXPERIENCE");
+
+        mockMvc.perform(get("/rest/players?order=EXPERIENCE&minExperience=1000&pageSize=5"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players?order=EXPERIENCE&after=1000000000000&maxLevel=30&pageSize=6"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/players?order=EXPERIENCE&title=ь&minLevel=1&pageSize=7"))
+                .andExpect(status().isOk());
+
+        assertEquals("Запросы с разными фильтрами выполняются не одной формой запроса.",
+                before + 3, executions("page:EXPERIENCE"));
+    }
+
+    //test2
+    @Test
+    public void shapesAreFixed() throws Exception {
+        assertEquals("Набор форм запросов не совпадает с ожидаемым.",
+                2 * (1 + 2 * PlayerOrder.values().length), shapes().size());
+    }
+
+    //test3
+    @Test
+    public void unknownOrderIsRejected() throws Exception {
+        mockMvc.perform(get("/rest/players?order=name desc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/page?order=RACE"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long executions(String shape) throws Exception {
+        return shapes().stream().filter(s -> s.shape.equals(shape)).findFirst()
+                .map(s -> s.executions).orElse(-1L);
+    }
+
+    private List<QueryShapeInfo> shapes() throws Exception {
+        String content = mockMvc.perform(get("/rest/metrics/queries"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readValue(content, typeReference);
+    }
+}
@@ -0,0 +1,126 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SparseFieldsTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<Map<String, Object>>> listType = new TypeReference<List<Map<String, Object>>>() {
+    };
+    private final TypeReference<Map<String, Object>> mapType = new TypeReference<Map<String, Object>>() {
+    };
+    private Statistics statistics;
+
+    @Before
+    public void enableStatistics() {
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @After
+    public void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    //test1
+    @Test
+    public void listIsNarrowedToFields() throws Exception {
+        List<Map<String, Object>> players = getAll("order=LEVEL&pageSize=5&fields=id,name,level").players;
+        List<Map<String, Object>> expected = narrow(getAll("order=LEVEL&pageSize=5").players, "id", "name", "level");
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметром fields.",
+                expected, players);
+        assertTrue("Запрос GET /rest/players с параметром fields читает лишние колонки.",
+                Arrays.stream(statistics.getQueries()).anyMatch(hql -> hql.startsWith("select p.id, p.name, p.level from Player")));
+    }
+
+    //test2
+    @Test
+    public void cursorPagesAreNarrowedToFields() throws Exception {
+        Page first = getAll("order=EXPERIENCE&pageSize=4&cursor=&fields=name");
+        Page second = getAll("order=EXPERIENCE&pageSize=4&fields=name&cursor=" + first.cursor);
+        List<Map<String, Object>> expected = narrow(getAll("order=EXPERIENCE&pageSize=8").players, "name");
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами cursor и fields.",
+                expected.subList(0, 4), first.players);
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players с параметрами cursor и fields.",
+                expected.subList(4, 8), second.players);
+    }
+
+    //test3
+    @Test
+    public void playerIsNarrowedToFields() throws Exception {
+        PlayerInfoTest expected = testsHelper.getPlayerInfosById(5);
+        String content = mockMvc.perform(get("/rest/players/5?fields=name,experience"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Map<String, Object> player = mapper.readValue(content, mapType);
+
+        Map<String, Object> narrowed = new LinkedHashMap<>();
+        narrowed.put("name", expected.name);
+        narrowed.put("experience", expected.experience);
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/{id} с параметром fields.",
+                narrowed, player);
+
+        mockMvc.perform(get("/rest/players?fields=id,password"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players?fields="))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/5?fields=name,,level"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static List<Map<String, Object>> narrow(List<Map<String, Object>> players, String... fields) {
+        Set<String> names = new HashSet<>(Arrays.asList(fields));
+        return players.stream()
+                .map(player -> {
+                    Map<String, Object> result = new LinkedHashMap<>(player);
+                    result.keySet().retainAll(names);
+                    return result;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Page getAll(String query) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(get("/rest/players?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        return new Page(mapper.readValue(response.getContentAsString(), listType),
+                response.getHeader(PlayerController.NEXT_CURSOR_HEADER));
+    }
+
+    private static class Page {
+        final List<Map<String, Object>> players;
+        final String cursor;
+
+        Page(List<Map<String, Object>> players, String cursor) {
+            this.players = players;
+            this.cursor = cursor;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.game.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class SuggestTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TypeReference<List<PlayerSuggestion>> typeReference = new TypeReference<List<PlayerSuggestion>>() {
+    };
+
+    //test1
+    @Test
+    public void suggestByPrefixIgnoringCase() throws Exception {
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/suggest.",
+                expectedIds("а", 3, testsHelper.getAllPlayers()), suggestIds("prefix=а&limit=3"));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/players/suggest.",
+                expectedIds("эл", 10, testsHelper.getAllPlayers()), suggestIds("prefix=ЭЛ"));
+    }
+
+    //test2
+    @Test
+    public void suggestFollowsCreateUpdateAndDelete() throws Exception {
+        mockMvc.perform(post("/rest/players/")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"Арбалет\", \"title\": \"Стрелок\", \"race\": \"ELF\", \"profession\": \"ROGUE\"," +
+                        " \"birthday\": 988059600000, \"experience\": 10000000}"))
+                .andExpect(status().isOk());
+        long id = testsHelper.getAllPlayers().size() + 1;
+        assertEquals("Созданный игрок не предлагается первым.", id, suggestIds("prefix=ар").get(0));
+
+        mockMvc.perform(post("/rest/players/" + id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\": 0}"))
+                .andExpect(status().isOk());
+        List<Long> afterUpdate = suggestIds("prefix=ар");
+        assertEquals("Игрок без опыта не должен быть первым.", id, afterUpdate.get(afterUpdate.size() - 1));
+
+        mockMvc.perform(delete("/rest/players/" + id))
+                .andExpect(status().isOk());
+        assertEquals("Удаленный игрок предлагается.",
+                expectedIds("ар", 10, testsHelper.getAllPlayers()), suggestIds("prefix=ар"));
+    }
+
+    //test3
+    @Test
+    public void suggestInvalidParameters() throws Exception {
+        mockMvc.perform(get("/rest/players/suggest"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/rest/players/suggest?prefix=а&limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<Long> suggestIds(String query) throws Exception {
+        String content = mockMvc.perform(get("/rest/players/suggest?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<PlayerSuggestion> suggestions = mapper.readValue(content, typeReference);
+        return suggestions.stream().map(s -> s.id).collect(Collectors.toList());
+    }
+
+    private List<Long> expectedIds(String prefix, int limit, List<PlayerInfoTest> players) {
+        return players.stream()
+                .filter(p -> p.name.toLowerCase(Locale.ROOT).startsWith(prefix))
+                .sorted(Comparator.comparing((PlayerInfoTest p) -> -p.experience).thenComparing(p -> p.id))
+                .limit(limit)
+                .map(p -> p.id)
+                .collect(Collectors.toList());
+    }
+}
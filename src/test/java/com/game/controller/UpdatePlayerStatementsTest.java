@@ -0,0 +1,63 @@
+package com.game.controller;
+
+import com.game.controller.utils.PlayerInfoTest;
+import com.game.controller.utils.TestsHelper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class UpdatePlayerStatementsTest extends AbstractTest {
+
+    private final TestsHelper testsHelper = new TestsHelper();
+    private Statistics statistics;
+
+    @Before
+    public void enableStatistics() {
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+    }
+
+    @After
+    public void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    //test1
+    @Test
+    public void updateIsOneSelectAndOneUpdate() throws Exception {
+        PlayerInfoTest player = testsHelper.getPlayerInfosById(1);
+
+        mockMvc.perform(post("/rest/players/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"experience\": 1000, \"banned\": " + player.banned + "}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Изменение игрока выполняет лишние запросы.", 2L, statistics.getPrepareStatementCount());
+        assertEquals("Игрок не обновлен.", 1L, statistics.getEntityUpdateCount());
+    }
+
+    //test2
+    @Test
+    public void unchangedPlayerIsNotWritten() throws Exception {
+        PlayerInfoTest player = testsHelper.getPlayerInfosById(1);
+
+        mockMvc.perform(post("/rest/players/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\": \"" + player.name + "\", \"experience\": " + player.experience +
+                        ", \"banned\": " + player.banned + "}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Не измененный игрок записывается в базу.", 0L, statistics.getEntityUpdateCount());
+        assertEquals("Изменение игрока выполняет лишние запросы.", 1L, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,27 @@
+package com.game.controller.utils;
+
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+/**
+ * Gives each context a journal directory of its own, so no test replays another's gains.
+ */
+public class TemporaryJournalDir implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        try {
+            String dir = Files.createTempDirectory("rpg-journal").toString();
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("temporaryJournalDir",
+                    Collections.singletonMap("players.journal.dir", dir)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.game.repository;
+
+import org.junit.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.fail;
+
+public class LevelEngineTest {
+
+    private final LevelEngine engine = new LevelEngine(new MockEnvironment());
+
+    //test1
+    @Test
+    public void defaultCurveMatchesTheFormula() {
+        for (int experience = 0; experience <= 10000000; experience++) {
+            int level = (int) (Math.sqrt(2500 + 200 * experience) - 50) / 100;
+            int untilNextLevel = 50 * (level + 1) * (level + 2) - experience;
+            if (engine.level(experience) != level || engine.untilNextLevel(level, experience) != untilNextLevel) {
+                fail("Уровень не совпадает с формулой при опыте " + experience + ".");
+            }
+        }
+    }
+
+    //test2
+    @Test
+    public void swappedCurveIsUsed() {
+        engine.setCurve(level -> 1000L * level);
+        assertEquals("Уровень считается не по новой кривой.", 12, engine.level(12999));
+        assertEquals("Опыт до следующего уровня считается не по новой кривой.", 1, engine.untilNextLevel(12, 12999));
+        assertEquals("Уровень за пределами таблицы считается не по кривой.", 20000, engine.level(20000999));
+        assertEquals("Опыт до следующего уровня за пределами таблицы считается не по кривой.",
+                1, engine.untilNextLevel(20000, 20000999));
+
+        try {
+            engine.setCurve(level -> 1000L * level + 1);
+            fail("Принята кривая, не начинающаяся с нуля.");
+        } catch (IllegalArgumentException expected) {
+            assertEquals("Неудачная замена кривой изменила таблицу.", 12, engine.level(12999));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.game.repository;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.fail;
+
+public class PlayerJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    //test1
+    @Test
+    public void replayFindsGainsNotApplied() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        PlayerJournal journal = new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.GROUP, 10);
+        journal.append(1, 100);
+        journal.append(2, 50);
+        journal.append(1, 25);
+        journal.committed(journal.prepare(Collections.singletonMap(1L, 100L)));
+        // destroy() only forces the segment and unlocks the directory: what a crash leaves
+        journal.destroy();
+
+        Map<Long, Long> expected = new HashMap<>();
+        expected.put(1L, 25L);
+        expected.put(2L, 50L);
+        assertEquals("После перезапуска найден не тот незаписанный опыт.", expected,
+                new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10).getOutstanding());
+    }
+
+    //test2
+    @Test
+    public void checkpointAndFullSegmentsKeepOneSegment() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        // room for ten records a segment
+        PlayerJournal journal = new PlayerJournal(dir, 10 * PlayerJournal.RECORD_SIZE, PlayerJournal.Fsync.INTERVAL, 10);
+        for (long id = 1; id <= 25; id++) journal.append(id, id);
+        for (long id = 1; id <= 20; id++) journal.committed(journal.prepare(Collections.singletonMap(id, id)));
+        journal.checkpoint();
+
+        assertEquals("Старые сегменты журнала не удалены.", 1, segments(dir).size());
+        Map<Long, Long> expected = new HashMap<>();
+        for (long id = 21; id <= 25; id++) expected.put(id, id);
+        assertEquals("Контрольная точка потеряла незаписанный опыт.", expected, PlayerJournal.read(dir));
+    }
+
+    //test3
+    @Test
+    public void tornRecordIsSkipped() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        PlayerJournal journal = new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10);
+        journal.append(1, 10);
+        journal.append(2, 20);
+        journal.append(3, 30);
+
+        // the empty snapshot takes the first slot; the gain of player 2 is in the third
+        try (RandomAccessFile file = new RandomAccessFile(segments(dir).get(0).toFile(), "rw")) {
+            file.seek(2 * PlayerJournal.RECORD_SIZE + 12);
+            file.writeLong(99);
+        }
+        Map<Long, Long> expected = new HashMap<>();
+        expected.put(1L, 10L);
+        expected.put(3L, 30L);
+        assertEquals("Поврежденная запись журнала не пропущена.", expected, PlayerJournal.read(dir));
+    }
+
+    //test4
+    @Test
+    public void chunkWithoutOutcomeIsSettledByStoredSequence() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        PlayerJournal journal = new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10);
+        journal.append(1, 100);
+        journal.append(2, 50);
+        long committed = journal.prepare(Collections.singletonMap(1L, 100L));
+        // the process is gone after the chunk committed and before its commit was journaled
+        journal.destroy();
+
+        PlayerJournal replayed = new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10);
+        replayed.recover(committed);
+        assertEquals("Записанная порция опыта применяется повторно после перезапуска.",
+                Collections.singletonMap(2L, 50L), replayed.getOutstanding());
+        assertEquals("Записанная порция опыта не отмечена в журнале.",
+                Collections.singletonMap(2L, 50L), PlayerJournal.read(dir));
+        assertEquals("Новая порция опыта получила уже использованный номер.", true,
+                replayed.prepare(Collections.singletonMap(2L, 50L)) > committed);
+    }
+
+    //test5
+    @Test
+    public void chunkNotCommittedIsReplayed() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        PlayerJournal journal = new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10);
+        journal.append(1, 100);
+        journal.append(2, 50);
+        journal.aborted(journal.prepare(Collections.singletonMap(1L, 100L)));
+        long committed = journal.prepare(Collections.singletonMap(2L, 50L));
+        long lost = journal.prepare(Collections.singletonMap(1L, 100L));
+        journal.destroy();
+
+        PlayerJournal replayed = new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10);
+        replayed.recover(committed);
+        assertEquals("Незаписанная порция опыта потеряна после перезапуска.",
+                Collections.singletonMap(1L, 100L), replayed.getOutstanding());
+        assertEquals("Новая порция опыта получила уже использованный номер.", true,
+                replayed.prepare(Collections.singletonMap(1L, 100L)) > lost);
+    }
+
+    //test6
+    @Test
+    public void lockedDirectoryIsRefused() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        PlayerJournal journal = new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10);
+        journal.append(1, 100);
+        try {
+            new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10);
+            fail("Второй журнал открыт в занятом каталоге.");
+        } catch (IllegalStateException expected) {
+            // the directory stays with the first journal
+        }
+        journal.destroy();
+
+        assertEquals("После закрытия журнала каталог не освобожден.", Collections.singletonMap(1L, 100L),
+                new PlayerJournal(dir, 1 << 20, PlayerJournal.Fsync.WRITE, 10).getOutstanding());
+    }
+
+    private static List<Path> segments(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(path -> path.toString().endsWith(".journal")).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class PlayerLeaderboardTest {
+
+    private final PlayerLeaderboard leaderboard = new PlayerLeaderboard();
+
+    //test1
+    @Test
+    public void idsBeyondIntRangeKeepTheirPlace() {
+        long big = (1L << 32) + 7;
+        leaderboard.put(player(7L, 500));
+        leaderboard.put(player(big, 500));
+        leaderboard.put(player(Long.MAX_VALUE, 900));
+
+        assertEquals("Лидеры идут не по опыту и id.", Arrays.asList(Long.MAX_VALUE, 7L, big), leaderboard.top(3));
+        assertEquals("Позиция игрока с большим id неверна.", 3, leaderboard.rank(big));
+
+        leaderboard.remove(7L);
+        assertEquals("Удаление игрока задело игрока с большим id.", 2, leaderboard.rank(big));
+    }
+
+    private static Player player(long id, int experience) {
+        Player player = new Player();
+        player.setId(id);
+        player.setExperience(experience);
+        return player;
+    }
+}
@@ -0,0 +1,35 @@
+package com.game.repository;
+
+import com.game.entity.Player;
+import org.junit.Test;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class PlayerTrigramIndexTest {
+
+    private final PlayerTrigramIndex index = new PlayerTrigramIndex();
+
+    //test1
+    @Test
+    public void collationExpansionsAreCandidates() {
+        index.put(player(1L, "Straße"));
+        index.put(player(2L, "Ærwyn"));
+        index.put(player(3L, "Œdipus"));
+        index.put(player(4L, "Søren"));
+        index.put(player(5L, "ﬁnwe"));
+
+        assertTrue("Не найден игрок по 'ss' вместо 'ß'.", index.match("rass", null).contains(1L));
+        assertTrue("Не найден игрок по 'ae' вместо 'æ'.", index.match("aerw", null).contains(2L));
+        assertTrue("Не найден игрок по 'oe' вместо 'œ'.", index.match("oedi", null).contains(3L));
+        assertTrue("Не найден игрок по 'o' вместо 'ø'.", index.match("sor", null).contains(4L));
+        assertTrue("Не найден игрок по 'fi' вместо лигатуры.", index.match("finw", null).contains(5L));
+        assertTrue("Не найден игрок по 'ß' вместо 'ss'.", index.match("aß", null).contains(1L));
+    }
+
+    private static Player player(long id, String name) {
+        Player player = new Player();
+        player.setId(id);
+        player.setName(name);
+        return player;
+    }
+}
@@ -0,0 +1,186 @@
+package com.game.service;
+
+import com.game.controller.PlayerEvent;
+import com.game.controller.PlayerEventType;
+import com.game.controller.PlayerIngestMetrics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+
+public class PlayerIngestTest {
+
+    private final ExecutorService submitters = Executors.newCachedThreadPool();
+    private PlayerIngest ingest;
+
+    @After
+    public void shutdown() throws Exception {
+        ingest.destroy();
+        submitters.shutdownNow();
+    }
+
+    //test1
+    @Test
+    public void eventsOfPlayerHaveOneWriterInOrder() throws Exception {
+        Map<Long, List<Integer>> amounts = new ConcurrentHashMap<>();
+        Map<Long, String> writers = new ConcurrentHashMap<>();
+        List<String> otherWriters = Collections.synchronizedList(new ArrayList<>());
+        ingest = new PlayerIngest(events -> {
+            for (PlayerEvent event : events) {
+                amounts.computeIfAbsent(event.id, id -> new ArrayList<>()).add(event.amount);
+                String writer = writers.putIfAbsent(event.id, Thread.currentThread().getName());
+                if (writer != null && !writer.equals(Thread.currentThread().getName())) otherWriters.add(writer);
+            }
+            return events.size();
+        }, 4, 1000, 7, 10);
+
+        for (int amount = 1; amount <= 50; amount++) {
+            List<PlayerEvent> batch = new ArrayList<>();
+            for (long id = 1; id <= 10; id++) batch.add(new PlayerEvent(id, PlayerEventType.EXPERIENCE, amount, null));
+            assertEquals("Пакет событий не принят.", PlayerIngest.Submission.SETTLED, ingest.submit(batch));
+        }
+        awaitApplied(500);
+
+        assertTrue("События одного игрока применяются разными потоками.", otherWriters.isEmpty());
+        for (List<Integer> applied : amounts.values()) {
+            for (int i = 0; i < applied.size(); i++) {
+                assertEquals("События игрока применяются не по порядку.", i + 1, applied.get(i));
+            }
+        }
+    }
+
+    //test2
+    @Test
+    public void fullPartitionRefusesWholeBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Function<List<PlayerEvent>, Integer> blocking = events -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return events.size();
+        };
+        ingest = new PlayerIngest(blocking, 2, 2, 1, 10);
+
+        // submit() returns once the events are applied, so the blocked batch is submitted aside
+        Future<PlayerIngest.Submission> blocked = submitters.submit(() -> ingest.submit(events(2L, 4L)));
+        assertTrue("Обработчик не начал применять события.", started.await(5, TimeUnit.SECONDS));
+        assertEquals("Принят пакет, для которого в очереди нет места.", PlayerIngest.Submission.FULL, ingest.submit(events(1L, 6L)));
+        assertEquals("Отказанный пакет частично поставлен в очередь.", 0L,
+                ingest.getMetrics().get(1).accepted);
+
+        Thread.sleep(20);
+        assertTrue("Не растет отставание очереди.", ingest.getMetrics().get(0).lagMs > 0);
+        assertTrue("Ответ на пакет отправлен до применения его событий.", !blocked.isDone());
+        release.countDown();
+        assertEquals("Пакет событий не принят.", PlayerIngest.Submission.SETTLED, blocked.get(5, TimeUnit.SECONDS));
+        awaitApplied(2);
+        assertEquals("После освобождения очереди пакет не принят.", PlayerIngest.Submission.SETTLED, ingest.submit(events(1L, 6L)));
+        awaitApplied(4);
+    }
+
+    //test3
+    @Test
+    public void failedGroupDropsOnlyFailingEvent() throws Exception {
+        List<Long> applied = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ingest = new PlayerIngest(events -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (events.stream().anyMatch(event -> event.id == 3L)) throw new IllegalStateException("bad event");
+            events.forEach(event -> applied.add(event.id));
+            return events.size();
+        }, 1, 100, 10, 10);
+
+        Future<PlayerIngest.Submission> first = submitters.submit(() -> ingest.submit(events(5L)));
+        assertTrue("Обработчик не начал применять события.", started.await(5, TimeUnit.SECONDS));
+        // queued while the worker is busy, so they form one group
+        Future<PlayerIngest.Submission> group = submitters.submit(() -> ingest.submit(events(1L, 2L, 3L, 4L)));
+        for (int i = 0; i < 500 && ingest.getMetrics().get(0).accepted < 5; i++) Thread.sleep(10);
+        release.countDown();
+        assertEquals("Пакет событий не принят.", PlayerIngest.Submission.SETTLED, first.get(5, TimeUnit.SECONDS));
+        assertEquals("Пакет событий не принят.", PlayerIngest.Submission.SETTLED, group.get(5, TimeUnit.SECONDS));
+
+        assertEquals("События неудачной группы применены не все или не по порядку.", Arrays.asList(5L, 1L, 2L, 4L), applied);
+        PlayerIngestMetrics metrics = ingest.getMetrics().get(0);
+        assertEquals("Отброшено не только событие с ошибкой.", 1L, metrics.failed);
+        assertEquals("Отброшенное событие не видно в метриках.", Collections.singletonList(3L),
+                metrics.deadLetters.stream().map(event -> event.id).collect(Collectors.toList()));
+    }
+
+    //test4
+    @Test
+    public void batchLargerThanQueueIsTooLarge() throws Exception {
+        ingest = new PlayerIngest(List::size, 2, 2, 1, 10);
+
+        assertEquals("Пакет, который не поместится в пустую очередь, не отличается от временного отказа.",
+                PlayerIngest.Submission.TOO_LARGE, ingest.submit(events(2L, 4L, 6L, 1L)));
+        assertEquals("Слишком большой пакет частично поставлен в очередь.", 0L,
+                ingest.getMetrics().stream().mapToLong(metrics -> metrics.accepted).sum());
+        assertEquals("Пакет, который помещается в очереди, не принят.",
+                PlayerIngest.Submission.SETTLED, ingest.submit(events(2L, 4L, 1L, 3L)));
+        awaitApplied(4);
+    }
+
+    //test5
+    @Test
+    public void destroyAppliesQueuedEvents() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        ingest = new PlayerIngest(events -> {
+            started.countDown();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return events.size();
+        }, 2, 100, 1, 10);
+
+        Future<PlayerIngest.Submission> submitted = submitters.submit(() -> ingest.submit(events(1L, 2L, 3L, 4L, 5L, 6L)));
+        assertTrue("Обработчик не начал применять события.", started.await(5, TimeUnit.SECONDS));
+        ingest.destroy();
+
+        assertEquals("Пакет событий не принят.", PlayerIngest.Submission.SETTLED, submitted.get(5, TimeUnit.SECONDS));
+        assertEquals("При остановке применены не все принятые события.", 6L,
+                ingest.getMetrics().stream().mapToLong(metrics -> metrics.applied).sum());
+        assertEquals("После остановки принят пакет событий.", PlayerIngest.Submission.CLOSED, ingest.submit(events(1L)));
+    }
+
+    private static List<PlayerEvent> events(Long... ids) {
+        List<PlayerEvent> events = new ArrayList<>();
+        for (Long id : ids) events.add(new PlayerEvent(id, PlayerEventType.BAN, null, null));
+        return events;
+    }
+
+    private void awaitApplied(long expected) throws InterruptedException {
+        long applied = 0;
+        for (int i = 0; i < 500 && applied < expected; i++) {
+            Thread.sleep(10);
+            applied = ingest.getMetrics().stream().mapToLong(metrics -> metrics.applied).sum();
+        }
+        assertEquals("Применены не все события.", expected, applied);
+    }
+}
@@ -0,0 +1,119 @@
+package com.game.service;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.util.AssertionErrors.fail;
+
+public class SingleFlightTest {
+
+    private static final int FOLLOWERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(FOLLOWERS + 1);
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    //test1
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(5000);
+
+        List<Future<Integer>> results = startLeaderAndFollowers(flight, () -> 42);
+        release.countDown();
+
+        for (Future<Integer> result : results) {
+            assertEquals("Ожидающий вызов получил не результат ведущего.", 42, result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("Одинаковые параллельные вызовы выполнены несколько раз.", 1, executions.get());
+    }
+
+    //test2
+    @Test
+    public void followersRunThemselvesWhenLeaderFails() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(5000);
+
+        List<Future<Integer>> results = startLeaderAndFollowers(flight, () -> {
+            throw new IllegalStateException("leader failed");
+        });
+        release.countDown();
+
+        try {
+            results.get(0).get(5, TimeUnit.SECONDS);
+            fail("Ошибка ведущего вызова не передана ему.");
+        } catch (ExecutionException e) {
+            assertTrue("Ошибка ведущего вызова не передана ему.", e.getCause() instanceof IllegalStateException);
+        }
+        for (Future<Integer> result : results.subList(1, results.size())) {
+            assertEquals("Ожидающий вызов не выполнен после ошибки ведущего.", 7, result.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    //test3
+    @Test
+    public void followerStopsWaitingAfterTimeout() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>(50);
+
+        Future<Integer> leader = executor.submit(() -> flight.execute("key", () -> {
+            leaderStarted.countDown();
+            awaitRelease();
+            return 1;
+        }));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        assertEquals("Ожидающий вызов не выполнен после истечения времени ожидания.", 2, flight.execute("key", () -> 2));
+
+        release.countDown();
+        assertEquals("Ведущий вызов вернул не свой результат.", 1, leader.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Starts a leader that blocks until release, then followers; the leader's supplier is
+     * leaderResult, every follower's own supplier returns 7.
+     */
+    private List<Future<Integer>> startLeaderAndFollowers(SingleFlight<String, Integer> flight,
+                                                          Supplier<Integer> leaderResult) throws Exception {
+        List<Future<Integer>> results = new ArrayList<>();
+        results.add(executor.submit(() -> flight.execute("key", () -> {
+            executions.incrementAndGet();
+            leaderStarted.countDown();
+            awaitRelease();
+            return leaderResult.get();
+        })));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < FOLLOWERS; i++) {
+            results.add(executor.submit(() -> flight.execute("key", () -> {
+                executions.incrementAndGet();
+                return 7;
+            })));
+        }
+        // gives the followers time to find the leader's call
+        Thread.sleep(200);
+        return results;
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
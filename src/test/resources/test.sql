@@ -55,4 +55,13 @@ VALUES ('Ниус', 'Приходящий Без Шума', 'HOBBIT', 'ROGUE', '
      , ('Яра', 'Прельстивая', 'HUMAN', 'CLERIC', '2004-06-12', false, 138306, 52, 4794)
      , ('Иллинас', 'Иероглиф', 'HOBBIT', 'WARRIOR', '2007-06-03', false, 115546, 47, 2054)
      , ('Ардонг', 'Вспышк A', 'HUMAN', 'WARLOCK', '2009-09-16', false, 24984, 21, 316)
-     , ('Аттирис', 'и.о.Карвандоса', 'ELF', 'SORCERER', '2010-04-15', true, 60520, 34, 2480);
\ No newline at end of file
+     , ('Аттирис', 'и.о.Карвандоса', 'ELF', 'SORCERER', '2010-04-15', true, 60520, 34, 2480);
+DROP TABLE IF EXISTS player_journal;
+
+CREATE TABLE player_journal
+(
+    appliedSequence BIGINT(20) NOT NULL
+);
+
+INSERT INTO player_journal(appliedSequence)
+VALUES (0);